@@ -40,6 +40,25 @@ public class Block {
 
 
 
+    /** Zobrist hash of this piece's cells, their order and its position on the grid. */
+    public long getHash() {
+        long h = 0L;
+        for (int i = 0; i < smallBlocks.length; i++) {
+            h ^= Zobrist.pieceKey(i, smallBlocks[i].getCode(),
+                    y + positions[i][0], x + positions[i][1]);
+        }
+        return h;
+    }
+
+    /** Zobrist hash of this piece's cells and their order, ignoring position (for the preview). */
+    public long getPreviewHash() {
+        long h = 0L;
+        for (int i = 0; i < smallBlocks.length; i++) {
+            h ^= Zobrist.nextPieceKey(i, smallBlocks[i].getCode());
+        }
+        return h;
+    }
+
     // Cycle the small blocks (swap their order)
     public void cycleColors() {
         SmallBlock temp = smallBlocks[0];
@@ -1,19 +1,34 @@
 // BlockFactory.java
 package Block;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * BlockFactory creates both regular small blocks and special power-up blocks.
  */
 public class BlockFactory {
-    private final Random random = new Random();
+    private final SplittableRandom random;
     private static final double POWERUP_PROBABILITY = 0.5; // .xx % chance per cell
 
     /**
      * Construct a BlockFactory.
      */
     public BlockFactory() {
+        this.random = new SplittableRandom();
+    }
+
+    /**
+     * Construct a BlockFactory whose piece sequence is fixed by the seed.
+     */
+    public BlockFactory(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * Construct a BlockFactory drawing from the given stream, e.g. one split off a match's.
+     */
+    public BlockFactory(SplittableRandom random) {
+        this.random = random;
     }
 
     /**
@@ -27,10 +42,10 @@ public class BlockFactory {
             if (random.nextDouble() < POWERUP_PROBABILITY) {
                 PowerUpType[] types = PowerUpType.values();
                 PowerUpType choice = types[random.nextInt(types.length)];
-                cells[i] = new PowerUpBlock(choice);
+                cells[i] = PowerUpBlock.of(choice);
             } else {
                 int index = random.nextInt(normalTypes);
-                cells[i] = new SmallBlock(index);
+                cells[i] = SmallBlock.of(index);
             }
         }
         return new Block(cells);
@@ -0,0 +1,63 @@
+package Block;
+
+/**
+ * Packs one grid cell into a single byte: block kind in the high nibble,
+ * index in the low nibble. Code 0 is an empty cell.
+ *
+ * The index is the typeIndex for small, Midas and Medusa blocks,
+ * and the PowerUpType ordinal for power-up blocks.
+ */
+public final class CellCode {
+    public static final byte EMPTY = 0;
+
+    public static final int KIND_EMPTY    = 0;
+    public static final int KIND_SMALL    = 1;
+    public static final int KIND_MIDAS    = 2;
+    public static final int KIND_MEDUSA   = 3;
+    public static final int KIND_POWER_UP = 4;
+
+    private static final PowerUpType[] POWER_UP_TYPES = PowerUpType.values();
+
+    private CellCode() {
+    }
+
+    public static byte pack(int kind, int index) {
+        return (byte) ((kind << 4) | index);
+    }
+
+    public static int kind(byte code) {
+        return (code >>> 4) & 0x0F;
+    }
+
+    public static int index(byte code) {
+        return code & 0x0F;
+    }
+
+    /** The typeIndex this cell matches as, or -1 for empty and Medusa cells. */
+    public static int matchType(byte code) {
+        switch (kind(code)) {
+            case KIND_SMALL:
+            case KIND_MIDAS:
+                return index(code);
+            case KIND_POWER_UP:
+                return POWER_UP_TYPES[index(code)].getSheetRow();
+            default:
+                return -1;
+        }
+    }
+
+    /** The shared block instance for a code, or null for an empty cell. */
+    public static SmallBlock toBlock(byte code) {
+        switch (kind(code)) {
+            case KIND_SMALL:    return SmallBlock.of(index(code));
+            case KIND_MIDAS:    return MidasBlock.of(index(code));
+            case KIND_MEDUSA:   return MedusaBlock.of(index(code));
+            case KIND_POWER_UP: return PowerUpBlock.of(POWER_UP_TYPES[index(code)]);
+            default:            return null;
+        }
+    }
+
+    public static byte of(SmallBlock block) {
+        return block == null ? EMPTY : block.getCode();
+    }
+}
@@ -6,8 +6,7 @@ import java.util.Set;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class DefensivePowerUpEffects {
 
@@ -34,6 +33,9 @@ public class DefensivePowerUpEffects {
         GameGrid grid = logic.getGrid();
         int rows = grid.getRows();
         int cols = grid.getColumns();
+        if (grid.isEmpty()) {
+            return;
+        }
 
         // 1) Find all unique colors in the grid
         Set<Integer> typeSet = new HashSet<>();
@@ -51,7 +53,7 @@ public class DefensivePowerUpEffects {
 
         // 2) Choose one color at random
         List<Integer> types = new ArrayList<>(typeSet);
-        Random rand = new Random();
+        SplittableRandom rand = logic.getRandom();
         int chosenType = types.get(rand.nextInt(types.size()));
 
         // 3) Collect positions of that color
@@ -70,7 +72,7 @@ public class DefensivePowerUpEffects {
 
         // 4) Pick a random number of them to clear
         int count = rand.nextInt(positions.size()) + 1;
-        Collections.shuffle(positions, rand);
+        PowerUpEffects.shuffle(positions, rand);
         for (int i = 0; i < count; i++) {
             int[] pos = positions.get(i);
             grid.setCell(pos[0], pos[1], null);
@@ -78,17 +80,7 @@ public class DefensivePowerUpEffects {
 
         // 5) Apply gravity: for each column, drop blocks down into empty space
         for (int c = 0; c < cols; c++) {
-            int writeRow = rows - 1;
-            for (int r = rows - 1; r >= 0; r--) {
-                SmallBlock sb = grid.getCell(r, c);
-                if (sb != null) {
-                    grid.setCell(writeRow, c, sb);
-                    if (writeRow != r) {
-                        grid.setCell(r, c, null);
-                    }
-                    writeRow--;
-                }
-            }
+            grid.collapseColumn(c);
         }
     }
 
@@ -105,10 +97,13 @@ public class DefensivePowerUpEffects {
         if (rows < 3 || cols < 3) return;
 
         // Find all valid top-left starts where that cell is non-null
+        // (rows above a column's top are empty, so each column starts there)
         List<int[]> validStarts = new ArrayList<>();
-        for (int r = 0; r <= rows - 3; r++) {
-            for (int c = 0; c <= cols - 3; c++) {
-                if (grid.getCell(r, c) != null) {
+        for (int c = 0; c <= cols - 3; c++) {
+            int top = grid.columnTop(c);
+            if (top < 0) continue;
+            for (int r = top; r <= rows - 3; r++) {
+                if (!grid.isCellEmpty(r, c)) {
                     validStarts.add(new int[]{r, c});
                 }
             }
@@ -118,7 +113,7 @@ public class DefensivePowerUpEffects {
         if (validStarts.isEmpty()) return;
 
         // Pick one at random
-        Random rand = new Random();
+        SplittableRandom rand = logic.getRandom();
         int[] start = validStarts.get(rand.nextInt(validStarts.size()));
         int startRow = start[0];
         int startCol = start[1];
@@ -129,7 +124,7 @@ public class DefensivePowerUpEffects {
         // Fill the 3×3 area
         for (int dr = 0; dr < 3; dr++) {
             for (int dc = 0; dc < 3; dc++) {
-                grid.setCell(startRow + dr, startCol + dc, new SmallBlock(typeIndex));
+                grid.setCell(startRow + dr, startCol + dc, SmallBlock.of(typeIndex));
             }
         }
     }
@@ -139,12 +134,15 @@ public class DefensivePowerUpEffects {
         int rows = grid.getRows();
         int cols = grid.getColumns();
 
+        if (grid.medusaCount() == 0) {
+            return;
+        }
+
         // 1) Collect positions of all locked MedusaBlocks
         List<int[]> medusaPositions = new ArrayList<>();
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < cols; c++) {
-                SmallBlock sb = grid.getCell(r, c);
-                if (sb instanceof MedusaBlock) {
+                if (grid.getKind(r, c) == CellCode.KIND_MEDUSA) {
                     medusaPositions.add(new int[]{r, c});
                 }
             }
@@ -156,7 +154,7 @@ public class DefensivePowerUpEffects {
         }
 
         // 3) Shuffle and remove up to two
-        Collections.shuffle(medusaPositions, new Random());
+        PowerUpEffects.shuffle(medusaPositions, logic.getRandom());
         int toRemove = Math.min(2, medusaPositions.size());
         for (int i = 0; i < toRemove; i++) {
             int[] pos = medusaPositions.get(i);
@@ -165,17 +163,7 @@ public class DefensivePowerUpEffects {
 
         // 4) Apply gravity: drop everything into empty slots
         for (int c = 0; c < cols; c++) {
-            int writeRow = rows - 1;
-            for (int r = rows - 1; r >= 0; r--) {
-                SmallBlock sb = grid.getCell(r, c);
-                if (sb != null) {
-                    grid.setCell(writeRow, c, sb);
-                    if (writeRow != r) {
-                        grid.setCell(r, c, null);
-                    }
-                    writeRow--;
-                }
-            }
+            grid.collapseColumn(c);
         }
     }
 
@@ -183,7 +171,7 @@ public class DefensivePowerUpEffects {
         GameGrid grid = logic.getGrid();
         int rows = grid.getRows();
         int cols  = grid.getColumns();
-        Random rand = new Random();
+        SplittableRandom rand = logic.getRandom();
 
         // 1) collect all distinct types present in the locked grid
         Set<Integer> typeSet = new HashSet<>();
@@ -225,17 +213,7 @@ public class DefensivePowerUpEffects {
 
         // 5) collapse each affected column so that all blocks fall down
         for (int c : colsToCollapse) {
-            int writeRow = rows - 1;
-            for (int r = rows - 1; r >= 0; r--) {
-                SmallBlock sb = grid.getCell(r, c);
-                if (sb != null) {
-                    grid.setCell(writeRow, c, sb);
-                    if (writeRow != r) {
-                        grid.setCell(r, c, null);
-                    }
-                    writeRow--;
-                }
-            }
+            grid.collapseColumn(c);
         }
 
         // 6) re‐drop the 3 stashed blocks as a contiguous cluster on the bottom row
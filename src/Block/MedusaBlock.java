@@ -2,58 +2,41 @@ package Block;
 
 import Burner.GameGrid;
 
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import javax.imageio.ImageIO;
-
 /**
  * A special power-up block that turns adjacent blocks into Medusa blocks.
- * Uses sprites at:
+ * Uses sprites (loaded by SpriteAtlas) at:
  *   col 3, row 3 → typeIndex 0
  *   col 3, row 4 → typeIndex 1
  *   col 2, row 5 → typeIndex 2
  */
 public class MedusaBlock extends SmallBlock {
-    private static final String SPRITESHEET_PATH = "/sprites/block_sprites.png";
-    private static final int SIZE = SmallBlock.SIZE;
-    private static BufferedImage sheet;
-    private static BufferedImage[] sprites;
+    private static final int TYPE_COUNT = 3;
+    private static final MedusaBlock[] instances = new MedusaBlock[TYPE_COUNT];
 
     static {
-        try {
-            sheet = ImageIO.read(MedusaBlock.class
-                    .getResourceAsStream(SPRITESHEET_PATH));
-            sprites = new BufferedImage[3];
-            // col 3, row 3
-            sprites[0] = sheet.getSubimage(3 * SIZE, 3 * SIZE, SIZE, SIZE);
-            // col 3, row 4
-            sprites[1] = sheet.getSubimage(3 * SIZE, 4 * SIZE, SIZE, SIZE);
-            // col 2, row 5
-            sprites[2] = sheet.getSubimage(3 * SIZE, 5 * SIZE, SIZE, SIZE);
-        } catch (IOException | IllegalArgumentException e) {
-            throw new RuntimeException(
-                    "Failed to load MedusaBlock sprites from " + SPRITESHEET_PATH, e);
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = new MedusaBlock(i);
         }
     }
 
     /**
-     * @param typeIndex which sprite to use (0 ≤ typeIndex < sprites.length)
+     * @param typeIndex which sprite to use (0 ≤ typeIndex < TYPE_COUNT)
      */
-    public MedusaBlock(int typeIndex) {
-        super(typeIndex);
-        if (typeIndex < 0 || typeIndex >= sprites.length) {
-            throw new IllegalArgumentException("Invalid MedusaBlock type: " + typeIndex);
-        }
+    private MedusaBlock(int typeIndex) {
+        super(typeIndex, CellCode.pack(CellCode.KIND_MEDUSA, typeIndex));
     }
 
-    @Override
-    public BufferedImage getSprite() {
-        return sprites[getTypeIndex()];
+    /** Shared immutable MedusaBlock of the given type. */
+    public static MedusaBlock of(int typeIndex) {
+        if (typeIndex < 0 || typeIndex >= instances.length) {
+            throw new IllegalArgumentException("Invalid MedusaBlock type: " + typeIndex);
+        }
+        return instances[typeIndex];
     }
 
     /** How many distinct MedusaBlock types exist. */
     public static int getTypeCount() {
-        return sprites.length;
+        return TYPE_COUNT;
     }
 
     /**
@@ -72,7 +55,7 @@ public class MedusaBlock extends SmallBlock {
             if (nr >= 0 && nr < grid.getRows()
                     && nc >= 0 && nc < grid.getColumns()
                     && grid.getCell(nr, nc) != null) {
-                grid.setCell(nr, nc, new MedusaBlock(getTypeIndex()));
+                grid.setCell(nr, nc, MedusaBlock.of(getTypeIndex()));
             }
         }
         // remove this MedusaBlock
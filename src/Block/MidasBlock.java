@@ -2,58 +2,38 @@ package Block;
 
 import Burner.*;
 
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import javax.imageio.ImageIO;
-
 /**
  * A special power-up block that turns adjacent blocks into gold.
- * Uses sprites from column 3, rows 0 through 2 of the sprite sheet.
+ * Uses sprites from column 3, rows 0 through 2 of the sprite sheet (see SpriteAtlas).
  */
 public class MidasBlock extends SmallBlock {
-    private static final String SPRITESHEET_PATH = "/sprites/block_sprites.png";
-    private static final int SPRITE_COLUMN = 3;       // use column 3
-    private static BufferedImage sheet;
-    private static BufferedImage[] sprites;
+    private static final int TYPE_COUNT = 3;          // rows 0, 1, and 2
+    private static final MidasBlock[] instances = new MidasBlock[TYPE_COUNT];
 
     static {
-        try {
-            sheet = ImageIO.read(MidasBlock.class.getResourceAsStream(SPRITESHEET_PATH));
-            int rows = 3;  // rows 0, 1, and 2
-            sprites = new BufferedImage[rows];
-            for (int i = 0; i < rows; i++) {
-                sprites[i] = sheet.getSubimage(
-                        SPRITE_COLUMN * SIZE,  // x offset = column 3 * sprite size
-                        i * SIZE,              // y offset = row i * sprite size
-                        SIZE,                  // width  = sprite size
-                        SIZE                   // height = sprite size
-                );
-            }
-        } catch (IOException | IllegalArgumentException e) {
-            throw new RuntimeException("Failed to load MidasBlock sprites from "
-                    + SPRITESHEET_PATH, e);
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = new MidasBlock(i);
         }
     }
 
     /**
-     * @param typeIndex which row-index to use (0 ≤ typeIndex < sprites.length)
+     * @param typeIndex which row-index to use (0 ≤ typeIndex < TYPE_COUNT)
      */
-    public MidasBlock(int typeIndex) {
-        super(typeIndex);
-        if (typeIndex < 0 || typeIndex >= sprites.length) {
-            throw new IllegalArgumentException("Invalid MidasBlock type: " + typeIndex);
-        }
+    private MidasBlock(int typeIndex) {
+        super(typeIndex, CellCode.pack(CellCode.KIND_MIDAS, typeIndex));
     }
 
-    /** Override to return the MidasBlock-specific sprite. */
-    @Override
-    public BufferedImage getSprite() {
-        return sprites[getTypeIndex()];
+    /** Shared immutable MidasBlock of the given type. */
+    public static MidasBlock of(int typeIndex) {
+        if (typeIndex < 0 || typeIndex >= instances.length) {
+            throw new IllegalArgumentException("Invalid MidasBlock type: " + typeIndex);
+        }
+        return instances[typeIndex];
     }
 
     /** How many distinct MidasBlock types exist. */
     public static int getTypeCount() {
-        return sprites.length;
+        return TYPE_COUNT;
     }
 
     /** Placeholder for the Midas power-up effect. */
@@ -76,7 +56,7 @@ public class MidasBlock extends SmallBlock {
             if (nr >= 0 && nr < grid.getRows()
                     && nc >= 0 && nc < grid.getColumns()
                     && grid.getCell(nr, nc) != null) {
-                grid.setCell(nr, nc, new SmallBlock(2));
+                grid.setCell(nr, nc, SmallBlock.of(2));
             }
         }
 
@@ -2,7 +2,18 @@ package Block;
 
 import Burner.GameLogic;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
 public class PowerUpEffects {
+    /** Fisher-Yates shuffle driven by a player's seeded stream (Collections.shuffle wants a Random). */
+    public static void shuffle(List<?> list, SplittableRandom random) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            Collections.swap(list, i, random.nextInt(i + 1));
+        }
+    }
+
     // Defensive delegates
     public static void doDefensiveOne(PowerUpBlock block, GameLogic logic) {
         DefensivePowerUpEffects.doDefensiveOne(block, logic);
@@ -4,12 +4,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class PowerUpInventory {
-    private static final int MAX_STORED = 10;
+    public static final int MAX_STORED = 10;
     private final List<PowerUpBlock> stored = new ArrayList<>();
+    private long hash;   // Zobrist hash of the stored codes by slot
 
     /** Add a cleared power-up to the stash, up to MAX_STORED */
     public void add(PowerUpBlock pu) {
         if (stored.size() < MAX_STORED) {
+            hash ^= Zobrist.storedKey(stored.size(), pu.getCode());
             stored.add(pu);
         }
         // if inventory is full, ignore additional power-ups until some are used
@@ -18,7 +20,32 @@ public class PowerUpInventory {
     /** Remove (and return) the first stored power-up, or null if none left */
     public PowerUpBlock use() {
         if (stored.isEmpty()) return null;
-        return stored.remove(0);
+        PowerUpBlock used = stored.remove(0);
+        // every remaining power-up moved up a slot; at most MAX_STORED keys to redo
+        hash = 0L;
+        for (int i = 0; i < stored.size(); i++) {
+            hash ^= Zobrist.storedKey(i, stored.get(i).getCode());
+        }
+        return used;
+    }
+
+    /** How many power-ups are stored */
+    public int size() {
+        return stored.size();
+    }
+
+    /** Zobrist hash of the stored power-ups and their order. */
+    public long getHash() {
+        return hash;
+    }
+
+    /** Write the stored power-ups' cell codes into out (oldest first) and return how many */
+    public int copyCodes(byte[] out) {
+        int n = Math.min(stored.size(), out.length);
+        for (int i = 0; i < n; i++) {
+            out[i] = stored.get(i).getCode();
+        }
+        return n;
     }
 
     /** Get an immutable snapshot for rendering */
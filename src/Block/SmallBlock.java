@@ -1,55 +1,61 @@
 package Block;
 
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import javax.imageio.ImageIO;
 
 /**
  * A single cell that makes up a falling Block.
- * Now uses a vertical sprite sheet in column 0.
+ * Its sprite comes from SpriteAtlas, keyed by the block's packed code.
  */
 public class SmallBlock {
     public static final int SIZE = 48;
 
-    private static final String SPRITESHEET_PATH = "/sprites/alt_blocksprites.png";
-    private static BufferedImage sheet;
-    private static BufferedImage[] sprites;
+    /** One type per row of the sprite sheet. */
+    public static final int TYPE_COUNT = 6;
+
+    private static final SmallBlock[] instances = new SmallBlock[TYPE_COUNT];
 
     private final int typeIndex;
+    private final byte code;
 
     static {
-        try {
-            sheet = ImageIO.read(SmallBlock.class.getResourceAsStream(SPRITESHEET_PATH));
-            int rows = sheet.getHeight() / SIZE;
-            sprites = new BufferedImage[rows];
-            for (int i = 0; i < rows; i++) {
-                // slice from column 0 (x = 0)
-                sprites[i] = sheet.getSubimage(
-                        0,          // x offset
-                        i * SIZE,   // y offset
-                        SIZE,       // width
-                        SIZE        // height
-                );
-            }
-        } catch (IOException | IllegalArgumentException e) {
-            throw new RuntimeException("Failed to load small-block sprites from "
-                    + SPRITESHEET_PATH, e);
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = new SmallBlock(i);
         }
     }
 
     /**
-     * @param typeIndex which row-index to use (0 ≤ typeIndex < sprites.length)
+     * @param typeIndex which row-index to use (0 ≤ typeIndex < TYPE_COUNT)
      */
-    public SmallBlock(int typeIndex) {
-        if (typeIndex < 0 || typeIndex >= sprites.length) {
+    private SmallBlock(int typeIndex) {
+        if (typeIndex < 0 || typeIndex >= TYPE_COUNT) {
             throw new IllegalArgumentException("Invalid SmallBlock type: " + typeIndex);
         }
         this.typeIndex = typeIndex;
+        this.code = CellCode.pack(CellCode.KIND_SMALL, typeIndex);
+    }
+
+    /** For subclasses: typeIndex used for matching, code used for grid storage. */
+    protected SmallBlock(int typeIndex, byte code) {
+        this.typeIndex = typeIndex;
+        this.code = code;
+    }
+
+    /** Shared immutable block of the given type; blocks are never allocated per cell. */
+    public static SmallBlock of(int typeIndex) {
+        if (typeIndex < 0 || typeIndex >= instances.length) {
+            throw new IllegalArgumentException("Invalid SmallBlock type: " + typeIndex);
+        }
+        return instances[typeIndex];
+    }
+
+    /** Returns the 48×48 sprite for this block (the current frame, for animated ones). */
+    public final BufferedImage getSprite() {
+        return SpriteAtlas.get(getSpriteId());
     }
 
-    /** Returns the 48×48 sprite for this block. */
-    public BufferedImage getSprite() {
-        return sprites[typeIndex];
+    /** This block's key in SpriteAtlas: its packed code as an unsigned int. */
+    public final int getSpriteId() {
+        return code & 0xFF;
     }
 
     /** Pixel size of this block. */
@@ -59,11 +65,21 @@ public class SmallBlock {
 
     /** How many distinct small-block types exist. */
     public static int getTypeCount() {
-        return sprites.length;
+        return TYPE_COUNT;
     }
 
     /** Expose the typeIndex for matching/clearing logic. */
     public int getTypeIndex() {
         return typeIndex;
     }
+
+    /** Packed grid code for this block, see {@link CellCode}. */
+    public byte getCode() {
+        return code;
+    }
+
+    /** One of the CellCode.KIND_* tags. */
+    public int getKind() {
+        return CellCode.kind(code);
+    }
 }
\ No newline at end of file
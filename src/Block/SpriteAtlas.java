@@ -0,0 +1,278 @@
+package Block;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * Every block sprite in one table, indexed by sprite id.
+ *
+ * A sprite id is the block's packed CellCode as an unsigned int (see SmallBlock.getSpriteId),
+ * so painting a cell is an array lookup on the code the grid already stores. Each id maps to
+ * its animation frames; plain blocks have one frame, power-ups have ANIM_FRAMES.
+ *
+ * Power-up frames are drawn the first time they are asked for and kept in a cache of at
+ * most MAX_CACHED_FRAMES images. Which frame is showing follows from the clock (frameAt),
+ * so there is no timer thread and nothing to do while no power-up is on screen.
+ *
+ * Each sheet is decoded once, and every tile is copied out into its own image created for
+ * the screen's GraphicsConfiguration. Unlike getSubimage views into the sheet, those can be
+ * cached in video memory and blitted without conversion.
+ *
+ * Boards drawn larger or smaller than SIZE px per cell (a fitted window, a HiDPI display)
+ * use getScaled, which resizes a sprite once per size and keeps it in an LRU cache.
+ *
+ * Nothing is loaded until the first lookup (or preload()), so headless matches never touch
+ * AWT or the sprite sheets.
+ */
+public final class SpriteAtlas {
+    private static final int SIZE = SmallBlock.SIZE;
+
+    private static final String ALT_SHEET_PATH   = "/sprites/alt_blocksprites.png";
+    private static final String BLOCK_SHEET_PATH = "/sprites/block_sprites.png";
+
+    // Power-up animation settings
+    private static final int  ANIM_FRAMES      = 30;
+    private static final long ANIM_FRAME_NANOS = 100_000_000L;   // 100 ms per frame
+
+    // At most this many power-up frames are kept (a full cycle for four types on screen);
+    // the oldest rendered one makes room
+    private static final int MAX_CACHED_FRAMES = 120;
+
+    // Pre-scaled copies for boards drawn at other than SIZE px per cell, least recently used
+    // evicted first; a full set at one size (static blocks plus every power-up frame) fits
+    private static final int MAX_SCALED_SPRITES = 400;
+    private static final Map<Long, BufferedImage> scaled =
+            new LinkedHashMap<Long, BufferedImage>(MAX_SCALED_SPRITES * 4 / 3 + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+                    return size() > MAX_SCALED_SPRITES;
+                }
+            };
+
+    private SpriteAtlas() {}
+
+    /** The table, built by whichever thread gets here first; others wait for it. */
+    private static final class Tiles {
+        static final GraphicsConfiguration GC = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment()
+                        .getDefaultScreenDevice().getDefaultConfiguration();
+        static final BufferedImage[][] FRAMES = new BufferedImage[256][];
+        // unanimated power-up sprite per id, or null for blocks that don't animate
+        static final BufferedImage[] BASES = new BufferedImage[256];
+        static final PowerUpCategory[] CATEGORIES = new PowerUpCategory[256];
+
+        // FIFO of rendered power-up frames, for eviction
+        static final int[] cachedIds    = new int[MAX_CACHED_FRAMES];
+        static final int[] cachedFrames = new int[MAX_CACHED_FRAMES];
+        static int cachedCount;
+        static int cachedNext;
+
+        static {
+            BufferedImage alt   = readSheet(ALT_SHEET_PATH);
+            BufferedImage block = readSheet(BLOCK_SHEET_PATH);
+            if (alt.getHeight() / SIZE < SmallBlock.TYPE_COUNT) {
+                throw new RuntimeException("Sprite sheet " + ALT_SHEET_PATH + " has "
+                        + alt.getHeight() / SIZE + " rows, need " + SmallBlock.TYPE_COUNT);
+            }
+
+            // small blocks: column 0, one type per row
+            for (int i = 0; i < SmallBlock.TYPE_COUNT; i++) {
+                put(SmallBlock.of(i), copyTile(alt, 0, i));
+            }
+            // Midas: column 3, rows 0-2; Medusa: column 3, rows 3-5
+            for (int i = 0; i < MidasBlock.getTypeCount(); i++) {
+                put(MidasBlock.of(i), copyTile(block, 3, i));
+            }
+            for (int i = 0; i < MedusaBlock.getTypeCount(); i++) {
+                put(MedusaBlock.of(i), copyTile(block, 3, 3 + i));
+            }
+            // power-ups: their own sheet cell; the electric-line frames are drawn over it on demand
+            for (PowerUpType t : PowerUpType.values()) {
+                int id = PowerUpBlock.of(t).getSpriteId();
+                BASES[id] = copyTile(alt, t.getSheetColumn(), t.getSheetRow());
+                CATEGORIES[id] = t.getCategory();
+                FRAMES[id] = new BufferedImage[ANIM_FRAMES];
+            }
+        }
+
+        private static void put(SmallBlock block, BufferedImage tile) {
+            FRAMES[block.getSpriteId()] = new BufferedImage[] { tile };
+        }
+    }
+
+    /**
+     * Start decoding the sheets on a background thread, so the first paint doesn't wait
+     * for ImageIO. Safe to call more than once or not at all.
+     */
+    public static void preload() {
+        Thread loader = new Thread(() -> get(SmallBlock.of(0).getSpriteId()), "sprite-atlas");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /** The sprite for an id at the current animation frame. */
+    public static BufferedImage get(int spriteId) {
+        return get(spriteId, getAnimationFrame());
+    }
+
+    /** The sprite for an id at a given animation frame; single-frame sprites ignore it. */
+    public static BufferedImage get(int spriteId, int frame) {
+        BufferedImage[] frames = Tiles.FRAMES[spriteId];
+        if (frames == null) {
+            throw new IllegalArgumentException("No sprite for id " + spriteId);
+        }
+        return frames.length == 1 ? frames[0] : animationFrame(spriteId, frame % frames.length);
+    }
+
+    /**
+     * The sprite for an id and animation frame, resized to size x size pixels. Each size is
+     * scaled once (bicubic) and cached, so drawing it is a plain copy with no resampling.
+     */
+    public static BufferedImage getScaled(int spriteId, int frame, int size) {
+        if (size == SIZE) {
+            return get(spriteId, frame);
+        }
+        BufferedImage[] frames = Tiles.FRAMES[spriteId];
+        if (frames == null) {
+            throw new IllegalArgumentException("No sprite for id " + spriteId);
+        }
+        if (frames.length == 1) {
+            frame = 0;
+        } else {
+            frame %= frames.length;
+        }
+        Long key = ((long) size << 16) | ((long) frame << 8) | spriteId;
+        synchronized (scaled) {
+            BufferedImage image = scaled.get(key);
+            if (image == null) {
+                image = scale(get(spriteId, frame), size);
+                scaled.put(key, image);
+            }
+            return image;
+        }
+    }
+
+    /** The animation frame every power-up is showing right now. */
+    public static int getAnimationFrame() {
+        return frameAt(System.nanoTime());
+    }
+
+    /** The animation frame shown at a System.nanoTime() timestamp; frames advance every 100 ms. */
+    public static int frameAt(long nanos) {
+        return (int) Math.floorMod(nanos / ANIM_FRAME_NANOS, (long) ANIM_FRAMES);
+    }
+
+    /** A power-up frame from the cache, rendering it (and evicting the oldest) if it isn't there. */
+    private static synchronized BufferedImage animationFrame(int spriteId, int frame) {
+        BufferedImage[] frames = Tiles.FRAMES[spriteId];
+        BufferedImage image = frames[frame];
+        if (image != null) {
+            return image;
+        }
+
+        if (Tiles.cachedCount == MAX_CACHED_FRAMES) {
+            int slot = Tiles.cachedNext;
+            Tiles.FRAMES[Tiles.cachedIds[slot]][Tiles.cachedFrames[slot]] = null;
+        } else {
+            Tiles.cachedCount++;
+        }
+        Tiles.cachedIds[Tiles.cachedNext] = spriteId;
+        Tiles.cachedFrames[Tiles.cachedNext] = frame;
+        Tiles.cachedNext = (Tiles.cachedNext + 1) % MAX_CACHED_FRAMES;
+
+        image = newTile();
+        paintPowerUpFrame(image, Tiles.BASES[spriteId], Tiles.CATEGORIES[spriteId], frame);
+        frames[frame] = image;
+        return image;
+    }
+
+    /**
+     * Draw animation frame i into dst: the base sprite with two sine-wave electric lines,
+     * red for offensive and blue for defensive power-ups.
+     */
+    private static void paintPowerUpFrame(BufferedImage dst, BufferedImage base, PowerUpCategory category, int i) {
+        int frames = ANIM_FRAMES;
+        int segments = 5;
+        int segWidth = SIZE / (segments - 1);
+        Graphics2D g2 = dst.createGraphics();
+        try {
+            // Draw base sprite
+            g2.setComposite(AlphaComposite.Src);
+            g2.drawImage(base, 0, 0, null);
+            // Setup for electric lines
+            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
+            g2.setStroke(new BasicStroke(4f));
+            g2.setColor(category == PowerUpCategory.OFFENSIVE ? Color.RED : Color.BLUE);
+            // Generate smooth sine-wave electric lines
+            for (int line = 0; line < 2; line++) {
+                int[] xs = new int[segments];
+                int[] ys = new int[segments];
+                for (int p = 0; p < segments; p++) {
+                    xs[p] = p * segWidth;
+                    double phase = 2 * Math.PI * (i + line * (frames / 2.0)) / frames;
+                    double offset = p * 0.6; // spatial phase offset
+                    int amplitude = SIZE / 2 - 4;
+                    ys[p] = SIZE / 2 + (int)(amplitude * Math.sin(phase + offset));
+                }
+                g2.drawPolyline(xs, ys, segments);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private static BufferedImage readSheet(String path) {
+        try (InputStream in = SpriteAtlas.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IOException("resource not found");
+            }
+            return ImageIO.read(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load sprite sheet " + path, e);
+        }
+    }
+
+    /** Copy one SIZE x SIZE cell of a sheet into an image of its own. */
+    private static BufferedImage copyTile(BufferedImage sheet, int column, int row) {
+        BufferedImage tile = newTile();
+        Graphics2D g = tile.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(sheet, 0, 0, SIZE, SIZE,
+                    column * SIZE, row * SIZE, (column + 1) * SIZE, (row + 1) * SIZE, null);
+        } finally {
+            g.dispose();
+        }
+        return tile;
+    }
+
+    private static BufferedImage scale(BufferedImage tile, int size) {
+        BufferedImage image = newTile(size);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(tile, 0, 0, size, size, null);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static BufferedImage newTile() {
+        return newTile(SIZE);
+    }
+
+    private static BufferedImage newTile(int size) {
+        GraphicsConfiguration gc = Tiles.GC;
+        return gc != null
+                ? gc.createCompatibleImage(size, size, Transparency.TRANSLUCENT)
+                : new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+    }
+}
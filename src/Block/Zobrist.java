@@ -0,0 +1,51 @@
+package Block;
+
+/**
+ * Zobrist keys for hashing game state.
+ *
+ * Every (slot, cell code) combination gets a fixed pseudo-random 64-bit key, derived by
+ * running the SplitMix64 finalizer over the combination instead of storing a table.
+ * Keys are the same in every process, so hashes can be compared across runs and replays.
+ * A state's hash is the XOR of the keys of everything in it; changing one cell costs
+ * two XORs.
+ */
+public final class Zobrist {
+    private static final long CELL_DOMAIN   = 0x243F6A8885A308D3L;
+    private static final long PIECE_DOMAIN  = 0x13198A2E03707344L;
+    private static final long NEXT_DOMAIN   = 0xA4093822299F31D0L;
+    private static final long STORED_DOMAIN = 0x082EFA98EC4E6C89L;
+
+    private Zobrist() {
+    }
+
+    /** Key for a grid cell holding a code; empty cells hash to 0. */
+    public static long cellKey(int cell, byte code) {
+        if (code == CellCode.EMPTY) return 0L;
+        return mix(CELL_DOMAIN + ((long) cell << 8) + (code & 0xFF));
+    }
+
+    /** Key for the i-th cell of the falling piece at an absolute grid position. */
+    public static long pieceKey(int slot, byte code, int row, int col) {
+        long packed = ((long) slot << 48) | ((long) (row & 0xFFFF) << 32)
+                | ((long) (col & 0xFFFF) << 16) | (code & 0xFF);
+        return mix(PIECE_DOMAIN + packed);
+    }
+
+    /** Key for the i-th cell of the next piece (its position doesn't matter until it spawns). */
+    public static long nextPieceKey(int slot, byte code) {
+        return mix(NEXT_DOMAIN + ((long) slot << 8) + (code & 0xFF));
+    }
+
+    /** Key for the power-up stored in a given inventory slot. */
+    public static long storedKey(int slot, byte code) {
+        return mix(STORED_DOMAIN + ((long) slot << 8) + (code & 0xFF));
+    }
+
+    /** SplitMix64 finalizer: a cheap bijective scramble of 64 bits. */
+    public static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,183 @@
+package Burner;
+
+import Block.PowerUpType;
+import Block.Zobrist;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plays many independent headless matches in parallel, for balance testing.
+ *
+ * Matches share nothing: each gets its own Match, grids, random streams and bots, all seeded
+ * from the match seed, so a result can be reproduced on its own from getSeed(). The index
+ * range is split recursively on a ForkJoinPool, whose work stealing keeps every core busy
+ * even though match lengths vary a lot. Given a ReplayArchive.Writer, every match's replay
+ * is appended to it as the match finishes.
+ */
+public class BatchRunner implements AutoCloseable {
+    /** An hour of play; matches still running then are recorded as timeouts. */
+    public static final long DEFAULT_MAX_TICKS = 60L * 60 * TickScheduler.TICKS_PER_SECOND;
+
+    private final ForkJoinPool pool;
+    private final long maxTicks;
+    private ReplayArchive.Writer archive;
+    private boolean instantGravity;
+
+    public BatchRunner(int parallelism, long maxTicks) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxTicks = maxTicks;
+    }
+
+    public BatchRunner() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_TICKS);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /** Play matches with instant gravity (no fall animation), see GameLogic.setInstantGravity. */
+    public void setInstantGravity(boolean instant) {
+        this.instantGravity = instant;
+    }
+
+    /** Record every match played from now on into this archive, or stop recording with null. */
+    public void setArchive(ReplayArchive.Writer archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Play matches 0..count-1 with one bot per player.
+     * @return results indexed by match number
+     */
+    public MatchResult[] run(int count, long baseSeed, Bot.Factory... bots) {
+        MatchResult[] results = new MatchResult[count];
+        pool.invoke(new Batch(results, 0, count, baseSeed, bots));
+        return results;
+    }
+
+    /** The seed of match index in a batch; spread out so neighbouring matches look unrelated. */
+    public static long matchSeed(long baseSeed, int index) {
+        return Zobrist.mix(baseSeed + index);
+    }
+
+    /** Play one match to the end (or maxTicks) on the calling thread. */
+    public static MatchResult playMatch(int index, long seed, long maxTicks, Bot.Factory... bots) {
+        return playMatch(index, seed, maxTicks, false, null, bots);
+    }
+
+    /**
+     * As above, optionally with instant gravity, and appending the match's replay to
+     * archive unless it is null.
+     */
+    public static MatchResult playMatch(int index, long seed, long maxTicks, boolean instantGravity,
+                                        ReplayArchive.Writer archive, Bot.Factory... bots) {
+        Match match = Match.create(bots.length, seed);
+        match.setInstantGravity(instantGravity);
+        ReplayRecorder recorder = archive == null ? null : ReplayRecorder.attach(match);
+        Bot[] players = new Bot[bots.length];
+        for (int p = 0; p < players.length; p++) {
+            players[p] = bots[p].create(Zobrist.mix(seed + p + 1));
+        }
+
+        match.start();
+        while (!match.isOver() && match.getTick() < maxTicks) {
+            for (int p = 0; p < players.length; p++) {
+                PlayerAction action = players[p].nextAction(match, p);
+                if (action != null) match.submit(p, action);
+            }
+            match.step();
+        }
+        if (recorder != null) {
+            try {
+                archive.append(recorder.finish());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return MatchResult.of(index, seed, match);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private final class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final MatchResult[] results;
+        private final int from, to;
+        private final long baseSeed;
+        private final Bot.Factory[] bots;
+
+        Batch(MatchResult[] results, int from, int to, long baseSeed, Bot.Factory[] bots) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.baseSeed = baseSeed;
+            this.bots = bots;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = playMatch(from, matchSeed(baseSeed, from), maxTicks,
+                        instantGravity, archive, bots);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Batch(results, from, mid, baseSeed, bots),
+                      new Batch(results, mid, to, baseSeed, bots));
+        }
+    }
+
+    /**
+     * Usage: BatchRunner [matches] [threads] [seed] [archive|-] [instant]
+     * Plays StackingBot against StackingBot and prints throughput and power-up stats;
+     * with an archive base path, also records every match into it.
+     */
+    public static void main(String[] args) throws IOException {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed   = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+
+        MatchResult[] results;
+        long start = System.nanoTime();
+        try (BatchRunner runner = new BatchRunner(threads, DEFAULT_MAX_TICKS);
+             ReplayArchive.Writer archive = args.length > 3 && !args[3].equals("-")
+                     ? new ReplayArchive.Writer(Paths.get(args[3])) : null) {
+            runner.setArchive(archive);
+            runner.setInstantGravity(args.length > 4 && args[4].equals("instant"));
+            results = runner.run(matches, seed, StackingBot::new, StackingBot::new);
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        long ticks = 0;
+        int timeouts = 0;
+        int[] losses = new int[2];
+        long[] uses = new long[PowerUpType.values().length];
+        for (MatchResult r : results) {
+            ticks += r.getTicks();
+            if (r.isTimeout()) timeouts++;
+            else losses[r.getLoser()]++;
+            for (PowerUpType t : PowerUpType.values()) {
+                for (int p = 0; p < r.getPlayerCount(); p++) {
+                    uses[t.ordinal()] += r.getPowerUpUses(p, t);
+                }
+            }
+        }
+
+        System.out.printf("%d matches on %d threads in %.2f s: %.1f matches/s, %.0f ticks/s%n",
+                matches, threads, secs, matches / secs, ticks / secs);
+        System.out.printf("avg length %.1f s, player 1 lost %d, player 2 lost %d, timeouts %d%n",
+                (double) ticks / matches / TickScheduler.TICKS_PER_SECOND, losses[0], losses[1], timeouts);
+        for (PowerUpType t : PowerUpType.values()) {
+            System.out.printf("  %-14s %.2f uses/match%n", t, (double) uses[t.ordinal()] / matches);
+        }
+    }
+}
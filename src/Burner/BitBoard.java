@@ -0,0 +1,114 @@
+package Burner;
+
+/**
+ * Static helpers for multi-word bitboards.
+ * Bit i of a board lives in word i / 64, so a board of any size is just a long[].
+ */
+public final class BitBoard {
+
+    private BitBoard() {
+    }
+
+    /** How many 64-bit words are needed to hold the given number of bits. */
+    public static int wordsFor(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    public static boolean get(long[] board, int bit) {
+        return (board[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public static void set(long[] board, int bit) {
+        board[bit >>> 6] |= 1L << bit;
+    }
+
+    public static void clear(long[] board, int bit) {
+        board[bit >>> 6] &= ~(1L << bit);
+    }
+
+    public static void or(long[] src, long[] out) {
+        for (int w = 0; w < out.length; w++) {
+            out[w] |= src[w];
+        }
+    }
+
+    public static boolean isEmpty(long[] board) {
+        for (long word : board) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /** dst bit i = src bit (i + n). Moves every bit n places towards bit 0. */
+    public static void shiftDown(long[] src, int n, long[] dst) {
+        int wordShift = n >>> 6;
+        int bitShift  = n & 63;
+        for (int w = 0; w < dst.length; w++) {
+            int s = w + wordShift;
+            long lo = s < src.length ? src[s] : 0L;
+            if (bitShift == 0) {
+                dst[w] = lo;
+            } else {
+                long hi = s + 1 < src.length ? src[s + 1] : 0L;
+                dst[w] = (lo >>> bitShift) | (hi << (64 - bitShift));
+            }
+        }
+    }
+
+    /** dst bit i = src bit (i - n). Moves every bit n places away from bit 0. */
+    public static void shiftUp(long[] src, int n, long[] dst) {
+        int wordShift = n >>> 6;
+        int bitShift  = n & 63;
+        for (int w = dst.length - 1; w >= 0; w--) {
+            int s = w - wordShift;
+            long hi = s >= 0 && s < src.length ? src[s] : 0L;
+            if (bitShift == 0) {
+                dst[w] = hi;
+            } else {
+                long lo = s - 1 >= 0 && s - 1 < src.length ? src[s - 1] : 0L;
+                dst[w] = (hi << bitShift) | (lo >>> (64 - bitShift));
+            }
+        }
+    }
+
+    /**
+     * Finds every run of three set bits spaced {@code step} apart and ORs all
+     * three bits of each run into {@code out}. When {@code starts} is not null,
+     * only runs beginning on one of its bits count.
+     * The two scratch arrays must be the same length as the board.
+     * @return true if at least one run was found
+     */
+    public static boolean markRunsOfThree(long[] board, int step, long[] starts, long[] out,
+                                          long[] scratchA, long[] scratchB) {
+        // runs = board & (board >> step) & (board >> 2*step)
+        shiftDown(board, step, scratchA);
+        shiftDown(board, 2 * step, scratchB);
+        boolean found = false;
+        for (int w = 0; w < board.length; w++) {
+            scratchA[w] &= board[w] & scratchB[w];
+            if (starts != null) scratchA[w] &= starts[w];
+            if (scratchA[w] != 0) found = true;
+        }
+        if (!found) return false;
+
+        // spread each start over the two cells that follow it
+        or(scratchA, out);
+        shiftUp(scratchA, step, scratchB);
+        or(scratchB, out);
+        shiftUp(scratchA, 2 * step, scratchB);
+        or(scratchB, out);
+        return true;
+    }
+
+    /**
+     * The run starts whose three cells ({@code step} apart) touch at least one bit
+     * of {@code cells}: cells | cells >> step | cells >> 2*step.
+     */
+    public static void runStartsTouching(long[] cells, int step, long[] out, long[] scratch) {
+        System.arraycopy(cells, 0, out, 0, out.length);
+        shiftDown(cells, step, scratch);
+        or(scratch, out);
+        shiftDown(cells, 2 * step, scratch);
+        or(scratch, out);
+    }
+}
@@ -0,0 +1,175 @@
+package Burner;
+
+import Block.SmallBlock;
+import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Where each player's grid and preview column sit, in board units (SmallBlock.SIZE per cell),
+ * for a given number of players and their grid sizes. FrameRenderer draws with it and
+ * GamePanel uses the same numbers to find the regions a frame changes.
+ *
+ * Two players keep the original mirrored layout: previews on the outside, grids meeting at
+ * a divider. Any other count tiles one preview-plus-grid per player, up to four across and
+ * in two rows past four, and the whole layout is scaled to fit the view like the two-player
+ * board. Tiles are all the size of the largest grid. Layouts for the standard grid are built
+ * once per player count and shared; other sizes are built on request.
+ */
+public final class BoardLayout {
+    public static final int MAX_PLAYERS = 8;
+
+    // space between tiles of the tiled layout
+    private static final int TILE_GAP = SmallBlock.SIZE / 2;
+
+    private static final BoardLayout[] STANDARD = new BoardLayout[MAX_PLAYERS + 1];
+
+    static {
+        for (int players = 1; players <= MAX_PLAYERS; players++) {
+            STANDARD[players] = build(filled(players, FrameRenderer.GRID_ROWS), filled(players, FrameRenderer.GRID_COLS));
+        }
+    }
+
+    private final int players;
+    private final int[] rows, columns;
+    private final int[] gridX, gridY, previewX, previewY;
+    private final int width, height;
+    private final int dividerX;
+
+    private BoardLayout(int[] rows, int[] columns, int width, int height, int dividerX) {
+        this.players = rows.length;
+        this.rows = rows;
+        this.columns = columns;
+        this.gridX = new int[players];
+        this.gridY = new int[players];
+        this.previewX = new int[players];
+        this.previewY = new int[players];
+        this.width = width;
+        this.height = height;
+        this.dividerX = dividerX;
+    }
+
+    /** The layout for this many players, 1 to MAX_PLAYERS, all on grids of the given size. */
+    public static BoardLayout of(int players, int rows, int columns) {
+        checkPlayers(players);
+        if (rows == FrameRenderer.GRID_ROWS && columns == FrameRenderer.GRID_COLS) {
+            return STANDARD[players];
+        }
+        return build(filled(players, rows), filled(players, columns));
+    }
+
+    /** The layout for these players' grids, as they are sized in the frame. */
+    public static BoardLayout of(FrameSnapshot frame) {
+        int players = frame.getPlayerCount();
+        checkPlayers(players);
+        int[] rows = new int[players], columns = new int[players];
+        for (int p = 0; p < players; p++) {
+            rows[p] = frame.getPlayer(p).getRows();
+            columns[p] = frame.getPlayer(p).getColumns();
+        }
+        return of(rows, columns);
+    }
+
+    /** The layout for these controllers' grids. */
+    public static BoardLayout of(List<GameController> controllers) {
+        int players = controllers.size();
+        checkPlayers(players);
+        int[] rows = new int[players], columns = new int[players];
+        for (int p = 0; p < players; p++) {
+            rows[p] = controllers.get(p).getGrid().getRows();
+            columns[p] = controllers.get(p).getGrid().getColumns();
+        }
+        return of(rows, columns);
+    }
+
+    private static BoardLayout of(int[] rows, int[] columns) {
+        BoardLayout standard = STANDARD[rows.length];
+        return standard.sized(rows, columns) ? standard : build(rows, columns);
+    }
+
+    private static void checkPlayers(int players) {
+        if (players < 1 || players > MAX_PLAYERS) {
+            throw new IllegalArgumentException("Can't lay out " + players + " players, 1 to " + MAX_PLAYERS);
+        }
+    }
+
+    private static int[] filled(int players, int value) {
+        int[] values = new int[players];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    private static BoardLayout build(int[] rows, int[] columns) {
+        return rows.length == 2 ? mirrored(rows, columns) : tiled(rows, columns);
+    }
+
+    private static BoardLayout mirrored(int[] rows, int[] columns) {
+        int size = SmallBlock.SIZE;
+        int cols = FrameRenderer.PREVIEW_COLS + columns[0] + columns[1] + FrameRenderer.PREVIEW_COLS;
+        int divider = (FrameRenderer.PREVIEW_COLS + columns[0]) * size;
+        BoardLayout layout = new BoardLayout(rows, columns, cols * size, Math.max(rows[0], rows[1]) * size, divider);
+        layout.previewX[0] = 0;
+        layout.gridX[0]    = FrameRenderer.PREVIEW_COLS * size;
+        layout.gridX[1]    = divider;
+        layout.previewX[1] = divider + columns[1] * size;
+        return layout;
+    }
+
+    private static BoardLayout tiled(int[] rows, int[] columns) {
+        int size = SmallBlock.SIZE;
+        int players = rows.length;
+        int across = players <= 4 ? players : (players + 1) / 2;
+        int down = (players + across - 1) / across;
+        int maxRows = 0, maxCols = 0;
+        for (int p = 0; p < players; p++) {
+            maxRows = Math.max(maxRows, rows[p]);
+            maxCols = Math.max(maxCols, columns[p]);
+        }
+        int tileW = (FrameRenderer.PREVIEW_COLS + maxCols) * size;
+        int tileH = maxRows * size;
+        BoardLayout layout = new BoardLayout(rows, columns,
+                across * tileW + (across - 1) * TILE_GAP, down * tileH + (down - 1) * TILE_GAP, -1);
+        for (int p = 0; p < players; p++) {
+            int x = (p % across) * (tileW + TILE_GAP);
+            int y = (p / across) * (tileH + TILE_GAP);
+            layout.previewX[p] = x;
+            layout.previewY[p] = y;
+            layout.gridX[p]    = x + FrameRenderer.PREVIEW_COLS * size;
+            layout.gridY[p]    = y;
+        }
+        return layout;
+    }
+
+    private boolean sized(int[] rows, int[] columns) {
+        return Arrays.equals(this.rows, rows) && Arrays.equals(this.columns, columns);
+    }
+
+    /** Whether this layout was built for the frame's player count and grid sizes. */
+    public boolean fits(FrameSnapshot frame) {
+        if (frame.getPlayerCount() != players) return false;
+        for (int p = 0; p < players; p++) {
+            FrameSnapshot.PlayerFrame player = frame.getPlayer(p);
+            if (player.getRows() != rows[p] || player.getColumns() != columns[p]) return false;
+        }
+        return true;
+    }
+
+    public int getPlayerCount()     { return players; }
+    public int getRows(int p)       { return rows[p]; }
+    public int getColumns(int p)    { return columns[p]; }
+    public int getGridX(int p)      { return gridX[p]; }
+    public int getGridY(int p)      { return gridY[p]; }
+    public int getPreviewX(int p)   { return previewX[p]; }
+    public int getPreviewY(int p)   { return previewY[p]; }
+    public int getWidth()           { return width; }
+    public int getHeight()          { return height; }
+    /** X of the line between two mirrored grids, or -1 for a tiled layout. */
+    public int getDividerX()        { return dividerX; }
+    /** Left edge of the clock, right of everything else. */
+    public int getClockX()          { return width + FrameRenderer.GAP; }
+
+    /** Size of the board area without the offsets or the clock. */
+    public Dimension getSize() {
+        return new Dimension(width, height);
+    }
+}
@@ -0,0 +1,20 @@
+package Burner;
+
+/**
+ * A computer player for headless matches. Asked once per tick, before the match steps,
+ * for the input to send; it sees the same state a human would see on screen.
+ */
+public interface Bot {
+
+    /** Creates a fresh bot for one match; the seed fixes any random choices it makes. */
+    interface Factory {
+        Bot create(long seed);
+    }
+
+    /**
+     * @param match  the running match
+     * @param player this bot's index in the match
+     * @return the action to submit this tick, or null to do nothing
+     */
+    PlayerAction nextAction(Match match, int player);
+}
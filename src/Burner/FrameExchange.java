@@ -0,0 +1,50 @@
+package Burner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands frame snapshots from the game tick (one writer) to the painter (one reader)
+ * without locks and without allocating.
+ *
+ * There are three snapshots: the writer owns one, the reader owns one, and the third
+ * sits in a single atomic slot. Publishing swaps the writer's snapshot into the slot;
+ * acquiring swaps the reader's snapshot for the slot when a newer frame is there.
+ * Neither side can ever write or read a snapshot the other one holds, so a frame is
+ * never torn, and the writer never waits for a slow paint.
+ */
+public final class FrameExchange {
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH      = 0x4;   // set when the slot holds a frame the reader hasn't taken
+
+    private final FrameSnapshot[] buffers = {
+            new FrameSnapshot(), new FrameSnapshot(), new FrameSnapshot()
+    };
+    private final AtomicInteger slot = new AtomicInteger(1);
+    private int back  = 0;   // writer-owned
+    private int front = 2;   // reader-owned
+    private long published;
+
+    /** Writer side: the snapshot to fill for the next frame. */
+    public FrameSnapshot beginWrite() {
+        return buffers[back];
+    }
+
+    /** Writer side: make the snapshot from beginWrite visible to the reader. */
+    public void publish() {
+        published++;
+        back = slot.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /** Writer side: how many frames have been published so far. */
+    public long getPublishedCount() {
+        return published;
+    }
+
+    /** Reader side: the latest published snapshot. Valid until the next acquire. */
+    public FrameSnapshot acquire() {
+        if ((slot.get() & FRESH) != 0) {
+            front = slot.getAndSet(front) & INDEX_MASK;
+        }
+        return buffers[front];
+    }
+}
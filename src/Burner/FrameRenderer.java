@@ -0,0 +1,379 @@
+package Burner;
+
+import Block.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Draws a FrameSnapshot: every player's preview, inventory and grid, placed by the
+ * BoardLayout for the players' grid sizes, and the clock.
+ * GamePanel uses it from paintComponent, GameCanvas from its render thread.
+ *
+ * The board is scaled to fit the view, and drawn in device pixels: the fit and the display's
+ * own transform (HiDPI scaling) are combined into a whole number of device pixels per cell.
+ * Sprites come pre-scaled to that size from SpriteAtlas and are copied without any transform,
+ * so no sprite is resampled per frame. The static chrome (outlines, frames, labels, divider)
+ * is drawn once into a device-resolution image and rebuilt only when the size, offsets,
+ * scale or grid change.
+ *
+ * With interpolation, falling pieces and gravity-animated blocks are drawn part of the way
+ * toward their next row, by how far the logic has progressed plus how much of the next tick
+ * has already elapsed. Without it (GamePanel) everything sits on whole rows, which is what
+ * lets the panel skip frames in which nothing changed.
+ */
+public class FrameRenderer {
+    // the standard grid, as Match.create(players, seed) builds it
+    static final int GRID_ROWS       = 18;
+    static final int GRID_COLS       = 6;
+    static final int PREVIEW_COLS    = 3;
+    static final int SPACING_Y       = 10;
+    static final int GAP             = 15;
+    static final int DIVIDER_STROKE  = 4;
+
+    // room kept right of the board for the clock when fitting the board to the view
+    private static final int CLOCK_WIDTH = 140;
+
+    private static final Font   LABEL_FONT   = new Font("Arial", Font.BOLD, 18);
+    private static final Stroke DIVIDER      = new BasicStroke(DIVIDER_STROKE);
+
+    private BufferedImage background;
+    private int backgroundWidth, backgroundHeight, backgroundOffsetX, backgroundOffsetY;
+    private BoardLayout backgroundLayout;
+    private Color backgroundColor;
+    private int backgroundCell;
+
+    private Color color = Color.BLACK;
+    private int offsetX = 50;
+    private int offsetY = 50;
+
+    // per-paint state: where the players go, the device-space layout origin, device pixels per cell and the
+    // matching scale from board units (SIZE per cell) to device pixels
+    private BoardLayout layout;
+    private int originX, originY;
+    private int cell = SmallBlock.SIZE;
+    private double scale = 1.0;
+    private final AffineTransform device = new AffineTransform();
+    private final AffineTransform chrome = new AffineTransform();
+
+    // power-up animation frame to draw, or -1 to follow the clock
+    private int animationFrame = -1;
+
+    // per-paint state: the power-up animation frame, and whether and how far to interpolate
+    private int paintAnimationFrame;
+    private boolean interpolate;
+    private double alpha;
+
+    // sprites looked up this frame, by sprite id, for the current cell size and animation
+    // frame; saves taking the atlas lock for every cell (several renderers may share it)
+    private final BufferedImage[] sprites = new BufferedImage[256];
+    private int spritesCell = -1, spritesFrame = -1;
+
+    // "Time: mm:ss", rebuilt only when the second changes
+    private int clockSeconds = -1;
+    private String clockText;
+
+    public void setOffset(int x, int y) {
+        this.offsetX = x;
+        this.offsetY = y;
+    }
+
+    public int getOffsetX() { return offsetX; }
+    public int getOffsetY() { return offsetY; }
+
+    public void setBackground(Color color) {
+        this.color = color;
+    }
+
+    /**
+     * Draw power-ups at this animation frame instead of the one the clock is showing, or
+     * follow the clock again with -1. Offscreen renders use it to show a replay's own time.
+     */
+    public void setAnimationFrame(int frame) {
+        this.animationFrame = frame;
+    }
+
+    /** The view size at which this board is drawn at its natural SIZE px per cell. */
+    public Dimension getNaturalSize(BoardLayout board) {
+        return new Dimension(offsetX + board.getWidth() + GAP + CLOCK_WIDTH, 2 * offsetY + board.getHeight());
+    }
+
+    /**
+     * Device pixels per cell for a view of the given size: the board fitted into the view
+     * (minus the offsets and the clock column), times the display scale, rounded to a whole
+     * number of pixels. Never less than 8.
+     */
+    public int cellSize(BoardLayout board, int width, int height, double deviceScale) {
+        double fit = Math.min((width - offsetX - GAP - CLOCK_WIDTH) / (double) board.getWidth(),
+                              (height - 2 * offsetY) / (double) board.getHeight());
+        return Math.max(8, (int) Math.round(SmallBlock.SIZE * fit * deviceScale));
+    }
+
+    /** View pixels per board unit for a view of the given size, as drawn by paint(). */
+    public double viewScale(BoardLayout board, int width, int height, double deviceScale) {
+        return cellSize(board, width, height, deviceScale) / (SmallBlock.SIZE * deviceScale);
+    }
+
+    /** The layout for the frame's players and grid sizes; kept while they stay the same. */
+    public BoardLayout layoutFor(FrameSnapshot frame) {
+        if (layout == null || !layout.fits(frame)) {
+            layout = BoardLayout.of(frame);
+        }
+        return layout;
+    }
+
+    /** Draw a frame with every block on a whole row. */
+    public void paint(Graphics2D g2, FrameSnapshot frame, int width, int height, GraphicsConfiguration gc) {
+        interpolate = false;
+        paintFrame(g2, frame, width, height, gc);
+    }
+
+    /**
+     * Draw a frame with moving blocks between rows.
+     *
+     * @param alpha how much of the tick after the snapshot has elapsed, 0 to 1
+     */
+    public void paintInterpolated(Graphics2D g2, FrameSnapshot frame, int width, int height,
+                                  GraphicsConfiguration gc, double alpha) {
+        interpolate = true;
+        this.alpha = Math.max(0.0, Math.min(1.0, alpha));
+        paintFrame(g2, frame, width, height, gc);
+    }
+
+    private void paintFrame(Graphics2D g2, FrameSnapshot frame, int width, int height, GraphicsConfiguration gc) {
+        if (frame.getFrameNumber() == 0 || frame.getPlayerCount() == 0) {
+            g2.setColor(color);
+            g2.fillRect(0, 0, width, height);
+            return;
+        }
+        layoutFor(frame);
+
+        // switch to device pixels, keeping only the translation to this view
+        AffineTransform saved = g2.getTransform();
+        double deviceScale = saved.getScaleX();
+        cell = cellSize(layout, width, height, deviceScale);
+        scale = cell / (double) SmallBlock.SIZE;
+        originX = (int) Math.round(offsetX * deviceScale);
+        originY = (int) Math.round(offsetY * deviceScale);
+        device.setToTranslation(saved.getTranslateX(), saved.getTranslateY());
+        chrome.setTransform(device);
+        chrome.translate(originX, originY);
+        chrome.scale(scale, scale);
+        g2.setTransform(device);
+
+        int deviceWidth  = (int) Math.ceil(width * deviceScale);
+        int deviceHeight = (int) Math.ceil(height * deviceScale);
+        g2.drawImage(getBackgroundLayer(deviceWidth, deviceHeight, gc), 0, 0, null);
+        paintAnimationFrame = animationFrame >= 0 ? animationFrame : SpriteAtlas.getAnimationFrame();
+        if (cell != spritesCell || paintAnimationFrame != spritesFrame) {
+            Arrays.fill(sprites, null);
+            spritesCell = cell;
+            spritesFrame = paintAnimationFrame;
+        }
+
+        int rightOfGrids = layout.getClockX();
+
+        g2.setTransform(chrome);
+        if (g2.hitClip(rightOfGrids, 0, CLOCK_WIDTH, SmallBlock.SIZE)) {
+            g2.setColor(Color.WHITE);
+            g2.setFont(LABEL_FONT);
+            g2.drawString(clockText(frame.getElapsedSeconds()), rightOfGrids, 20);
+        }
+        g2.setTransform(device);
+
+        for (int p = 0; p < layout.getPlayerCount(); p++) {
+            FrameSnapshot.PlayerFrame player = frame.getPlayer(p);
+            drawGrid(player, g2, layout.getGridX(p), layout.getGridY(p));
+            drawActive(player, g2, layout.getGridX(p), layout.getGridY(p));
+            drawPreview(player, g2, layout.getPreviewX(p), layout.getPreviewY(p));
+            drawStoredPowerUps(player, g2, layout.getPreviewX(p), layout.getPreviewY(p));
+        }
+
+        g2.setTransform(saved);
+    }
+
+    // Position of a stored power-up slot, relative to the preview column
+    static int storedX(int offsetX) {
+        return offsetX + (SmallBlock.SIZE * PREVIEW_COLS - SmallBlock.SIZE) / 2;
+    }
+
+    static int storedY(int slot) {
+        return SmallBlock.SIZE * PREVIEW_COLS + SPACING_Y + GAP + (slot + 1) * (SmallBlock.SIZE + GAP);
+    }
+
+    private String clockText(int secs) {
+        if (secs != clockSeconds) {
+            clockSeconds = secs;
+            clockText = String.format("Time: %02d:%02d", secs/60, secs%60);
+        }
+        return clockText;
+    }
+
+    /** The static layer for the current size and layout, redrawn only if one of them changed. */
+    private BufferedImage getBackgroundLayer(int width, int height, GraphicsConfiguration gc) {
+        int w = Math.max(1, width);
+        int h = Math.max(1, height);
+        if (background == null
+                || w != backgroundWidth || h != backgroundHeight
+                || offsetX != backgroundOffsetX || offsetY != backgroundOffsetY
+                || layout != backgroundLayout
+                || !color.equals(backgroundColor) || cell != backgroundCell) {
+            background = gc != null
+                    ? gc.createCompatibleImage(w, h)
+                    : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            backgroundWidth = w;
+            backgroundHeight = h;
+            backgroundOffsetX = offsetX;
+            backgroundOffsetY = offsetY;
+            backgroundLayout = layout;
+            backgroundColor = color;
+            backgroundCell = cell;
+
+            Graphics2D g = background.createGraphics();
+            try {
+                paintBackgroundLayer(g);
+            } finally {
+                g.dispose();
+            }
+        }
+        return background;
+    }
+
+    private void paintBackgroundLayer(Graphics2D g2) {
+        g2.setColor(color);
+        g2.fillRect(0, 0, backgroundWidth, backgroundHeight);
+        g2.translate(originX, originY);
+        g2.scale(scale, scale);
+        g2.setFont(LABEL_FONT);
+
+        for (int p = 0; p < layout.getPlayerCount(); p++) {
+            // Two players: the divider goes between the grids, and its stroke stays set
+            // for player 2, as it always has
+            if (p == 1 && layout.getDividerX() >= 0) {
+                drawDivider(g2, layout.getDividerX(), layout.getHeight());
+            }
+            int rows = layout.getRows(p);
+            drawGridOutlines(g2, layout.getGridX(p), layout.getGridY(p), rows, layout.getColumns(p));
+            drawPreviewFrame(g2, layout.getPreviewX(p), layout.getPreviewY(p), rows);
+            drawInventoryFrame(g2, layout.getPreviewX(p), layout.getPreviewY(p), rows);
+        }
+    }
+
+    private void drawDivider(Graphics g, int x, int height) {
+        Graphics2D g2      = (Graphics2D) g;
+        g2.setColor(Color.WHITE);
+        g2.setStroke(DIVIDER);
+        g2.drawLine(x, 0, x, height);
+    }
+
+    private void drawPreviewFrame(Graphics g, int offsetX, int offsetY, int rows) {
+        int panelW         = SmallBlock.SIZE * PREVIEW_COLS;
+        int panelH         = rows * SmallBlock.SIZE;
+
+        // background + border
+        g.setColor(Color.BLACK);
+        g.fillRect(offsetX, offsetY, panelW, panelH);
+        g.setColor(Color.WHITE);
+        g.drawRect(offsetX, offsetY, panelW - 1, panelH - 1);
+    }
+
+    private void drawPreview(FrameSnapshot.PlayerFrame player, Graphics g, int offsetX, int offsetY) {
+        int panelW         = SmallBlock.SIZE * PREVIEW_COLS;
+
+        int count = player.getNextCount();
+        if (count == 0) return;
+
+        int baseX       = offsetX + (panelW - SmallBlock.SIZE) / 2;
+        int baseY       = offsetY + (PREVIEW_COLS * SmallBlock.SIZE - SmallBlock.SIZE * count) / 2;
+
+        for (int i = 0; i < count; i++) {
+            int px = baseX + player.getNextColumn(i) * SmallBlock.SIZE;
+            int py = baseY + player.getNextRow(i) * SmallBlock.SIZE;
+            drawSmallBlock(g, player.getNextCode(i), px, py);
+        }
+    }
+
+    private void drawInventoryFrame(Graphics g, int offsetX, int offsetY, int rows) {
+        int panelW = SmallBlock.SIZE * PREVIEW_COLS;
+        int invX    = offsetX;
+        int invY    = offsetY + SmallBlock.SIZE * PREVIEW_COLS + SPACING_Y;
+        int invH    = offsetY + rows * SmallBlock.SIZE - invY;
+
+        // background + border aligned to bottom of grid
+        g.setColor(Color.BLACK);
+        g.fillRect(invX, invY, panelW, invH);
+        g.setColor(Color.WHITE);
+        g.drawRect(invX, invY, panelW - 1, invH - 1);
+
+        g.drawString("Power-Ups", invX + GAP, invY + GAP + g.getFontMetrics().getAscent());
+    }
+
+    private void drawStoredPowerUps(FrameSnapshot.PlayerFrame player, Graphics g, int offsetX, int offsetY) {
+        for (int i = 0; i < player.getStoredCount(); i++) {
+            drawSmallBlock(g, player.getStoredCode(i), storedX(offsetX), offsetY + storedY(i));
+        }
+    }
+
+    /** Every cell's outline; occupied cells cover theirs with a sprite when painted. */
+    private void drawGridOutlines(Graphics g, int offsetX, int offsetY, int rows, int cols) {
+        g.setColor(Color.GRAY);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                g.drawRect(offsetX + c * SmallBlock.SIZE, offsetY + r * SmallBlock.SIZE, SmallBlock.SIZE, SmallBlock.SIZE);
+            }
+        }
+    }
+
+    private void drawGrid(FrameSnapshot.PlayerFrame player, Graphics g, int offsetX, int offsetY) {
+        // while gravity is animating, every block above a gap falls one row per step
+        int fall = 0;
+        if (interpolate && player.getGravityProgress() >= 0) {
+            fall = toPixels(player.getGravityProgress() + alpha * player.getGravityPerTick());
+        }
+        for (int c = 0; c < player.getColumns(); c++) {
+            boolean gapBelow = false;
+            for (int r = player.getRows() - 1; r >= 0; r--) {
+                byte code = player.getCell(r, c);
+                if (code == CellCode.EMPTY) {
+                    gapBelow = true;
+                } else {
+                    drawSmallBlock(g, code, offsetX + c * SmallBlock.SIZE,
+                            offsetY + r * SmallBlock.SIZE + (gapBelow ? fall : 0));
+                }
+            }
+        }
+    }
+
+    private void drawActive(FrameSnapshot.PlayerFrame player, Graphics g, int offsetX, int offsetY) {
+        int fall = interpolate ? toPixels(player.getDropProgress() + alpha * player.getDropPerTick()) : 0;
+        for (int i = 0; i < player.getActiveCount(); i++) {
+            int x = offsetX + player.getActiveColumn(i) * SmallBlock.SIZE;
+            int y = offsetY + player.getActiveRow(i) * SmallBlock.SIZE + fall;
+            drawSmallBlock(g, player.getActiveCode(i), x, y);
+        }
+    }
+
+    /** A fraction of a row in pixels; never past the next row, where the logic will put it anyway. */
+    private static int toPixels(double rows) {
+        return (int) (Math.min(1.0, rows) * SmallBlock.SIZE);
+    }
+
+    /**
+     * Blit the sprite for a packed cell code at board position x, y. The Graphics is in device
+     * pixels and the sprite is already cell x cell, so this is a straight copy.
+     */
+    private void drawSmallBlock(Graphics g, byte code, int x, int y) {
+        int dx = originX + (int) Math.round(x * scale);
+        int dy = originY + (int) Math.round(y * scale);
+        // outside the repainted region(s); skip before touching the sprite
+        if (!g.hitClip(dx, dy, cell, cell)) return;
+        int id = code & 0xFF;
+        BufferedImage sprite = sprites[id];
+        if (sprite == null) {
+            sprite = SpriteAtlas.getScaled(id, paintAnimationFrame, cell);
+            sprites[id] = sprite;
+        }
+        g.drawImage(sprite, dx, dy, null);
+    }
+}
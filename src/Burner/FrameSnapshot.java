@@ -0,0 +1,203 @@
+package Burner;
+
+import Block.*;
+
+import java.util.List;
+
+/**
+ * Everything the painter needs for one frame, copied out of the live game state:
+ * each player's grid cells, active and next piece, stored power-ups, plus the clock.
+ * Cells are packed CellCodes, so a snapshot is a few small byte arrays.
+ *
+ * Snapshots are recycled through a {@link FrameExchange}. The game tick fills one,
+ * publishes it, and never touches it again while the painter may be reading it.
+ */
+public final class FrameSnapshot {
+    private PlayerFrame[] players = new PlayerFrame[0];
+    private int playerCount;
+    private int elapsedSeconds;
+    private long frameNumber;
+    private long captureNanos;
+
+    /** Copy the current state of every controller into this snapshot. */
+    public void capture(List<GameController> controllers, long frameNumber) {
+        ensurePlayers(controllers.size());
+        playerCount = controllers.size();
+        for (int i = 0; i < playerCount; i++) {
+            players[i].capture(controllers.get(i));
+        }
+        elapsedSeconds = playerCount > 0 ? controllers.get(0).getElapsedSeconds() : 0;
+        this.frameNumber = frameNumber;
+        captureNanos = System.nanoTime();
+    }
+
+    /** Make this snapshot an exact copy of another one, reusing its arrays where they fit. */
+    public void copyFrom(FrameSnapshot other) {
+        ensurePlayers(other.playerCount);
+        playerCount = other.playerCount;
+        for (int i = 0; i < playerCount; i++) {
+            players[i].copyFrom(other.players[i]);
+        }
+        elapsedSeconds = other.elapsedSeconds;
+        frameNumber = other.frameNumber;
+        captureNanos = other.captureNanos;
+    }
+
+    private void ensurePlayers(int count) {
+        if (players.length >= count) return;
+        PlayerFrame[] grown = new PlayerFrame[count];
+        System.arraycopy(players, 0, grown, 0, players.length);
+        for (int i = players.length; i < grown.length; i++) {
+            grown[i] = new PlayerFrame();
+        }
+        players = grown;
+    }
+
+    public int getPlayerCount()      { return playerCount; }
+    public PlayerFrame getPlayer(int i) { return players[i]; }
+    public int getElapsedSeconds()   { return elapsedSeconds; }
+    /** Increases by one for every published snapshot; 0 means nothing was captured yet. */
+    public long getFrameNumber()     { return frameNumber; }
+    /** System.nanoTime() when the state was copied, i.e. just after the last tick it contains. */
+    public long getCaptureNanos()    { return captureNanos; }
+
+    /** One player's part of a frame. */
+    public static final class PlayerFrame {
+        private int rows;
+        private int columns;
+        private byte[] cells = new byte[0];
+
+        // active piece, absolute grid positions
+        private int activeCount;
+        private byte[] activeCodes = new byte[3];
+        private int[] activeRows = new int[3];
+        private int[] activeCols = new int[3];
+
+        // next piece, positions relative to the piece origin
+        private int nextCount;
+        private byte[] nextCodes = new byte[3];
+        private int[] nextRows = new int[3];
+        private int[] nextCols = new int[3];
+
+        private int storedCount;
+        private byte[] storedCodes = new byte[PowerUpInventory.MAX_STORED];
+
+        // motion between ticks, for interpolated drawing: rows covered so far and rows per tick
+        private double dropProgress;
+        private double dropPerTick;
+        private double gravityProgress;
+        private double gravityPerTick;
+
+        void capture(GameController controller) {
+            GameGrid grid = controller.getGrid();
+            rows = grid.getRows();
+            columns = grid.getColumns();
+            if (cells.length != rows * columns) {
+                cells = new byte[rows * columns];
+            }
+            grid.copyCells(cells);
+
+            Block active = controller.getCurrentBlock();
+            activeCount = 0;
+            if (active != null) {
+                ensureActiveCapacity(active.getSmallBlocks().length);
+                activeCount = copyPiece(active, activeCodes, activeRows, activeCols,
+                        active.getY(), active.getX());
+            }
+
+            Block next = controller.getNextBlock();
+            nextCount = 0;
+            if (next != null) {
+                ensureNextCapacity(next.getSmallBlocks().length);
+                nextCount = copyPiece(next, nextCodes, nextRows, nextCols, 0, 0);
+            }
+
+            storedCount = controller.getPowerUpInventory().copyCodes(storedCodes);
+
+            dropProgress = controller.getDropProgress();
+            dropPerTick = controller.getDropSpeed();
+            GameLogic logic = controller.getGameLogic();
+            gravityProgress = logic.getGravityProgress();
+            gravityPerTick = 1.0 / GameLogic.getFallDelayTicks();
+        }
+
+        void copyFrom(PlayerFrame other) {
+            rows = other.rows;
+            columns = other.columns;
+            if (cells.length != other.cells.length) {
+                cells = new byte[other.cells.length];
+            }
+            System.arraycopy(other.cells, 0, cells, 0, cells.length);
+
+            ensureActiveCapacity(other.activeCount);
+            activeCount = other.activeCount;
+            System.arraycopy(other.activeCodes, 0, activeCodes, 0, activeCount);
+            System.arraycopy(other.activeRows, 0, activeRows, 0, activeCount);
+            System.arraycopy(other.activeCols, 0, activeCols, 0, activeCount);
+            ensureNextCapacity(other.nextCount);
+            nextCount = other.nextCount;
+            System.arraycopy(other.nextCodes, 0, nextCodes, 0, nextCount);
+            System.arraycopy(other.nextRows, 0, nextRows, 0, nextCount);
+            System.arraycopy(other.nextCols, 0, nextCols, 0, nextCount);
+
+            storedCount = other.storedCount;
+            System.arraycopy(other.storedCodes, 0, storedCodes, 0, storedCount);
+
+            dropProgress = other.dropProgress;
+            dropPerTick = other.dropPerTick;
+            gravityProgress = other.gravityProgress;
+            gravityPerTick = other.gravityPerTick;
+        }
+
+        private static int copyPiece(Block block, byte[] codes, int[] rowsOut, int[] colsOut,
+                                     int originRow, int originCol) {
+            int[][] shape = block.getPositions();
+            SmallBlock[] pieceCells = block.getSmallBlocks();
+            for (int i = 0; i < pieceCells.length; i++) {
+                codes[i] = CellCode.of(pieceCells[i]);
+                rowsOut[i] = originRow + shape[i][0];
+                colsOut[i] = originCol + shape[i][1];
+            }
+            return pieceCells.length;
+        }
+
+        // the two pieces grow separately: growing one must not wipe the other once copied
+        private void ensureActiveCapacity(int n) {
+            if (activeCodes.length >= n) return;
+            activeCodes = new byte[n];
+            activeRows = new int[n];
+            activeCols = new int[n];
+        }
+
+        private void ensureNextCapacity(int n) {
+            if (nextCodes.length >= n) return;
+            nextCodes = new byte[n];
+            nextRows = new int[n];
+            nextCols = new int[n];
+        }
+
+        public int getRows()    { return rows; }
+        public int getColumns() { return columns; }
+        public byte getCell(int row, int col) { return cells[row * columns + col]; }
+
+        public int  getActiveCount()       { return activeCount; }
+        public byte getActiveCode(int i)   { return activeCodes[i]; }
+        public int  getActiveRow(int i)    { return activeRows[i]; }
+        public int  getActiveColumn(int i) { return activeCols[i]; }
+
+        public int  getNextCount()         { return nextCount; }
+        public byte getNextCode(int i)     { return nextCodes[i]; }
+        public int  getNextRow(int i)      { return nextRows[i]; }
+        public int  getNextColumn(int i)   { return nextCols[i]; }
+
+        public int  getStoredCount()       { return storedCount; }
+        public byte getStoredCode(int i)   { return storedCodes[i]; }
+
+        /** How far (0 to 1) the active piece is toward the row below; 0 when it can't move down. */
+        public double getDropProgress()    { return dropProgress; }
+        public double getDropPerTick()     { return dropPerTick; }
+        /** How far (0 to 1) gravity-animated blocks are toward the row below, or -1 when idle. */
+        public double getGravityProgress() { return gravityProgress; }
+        public double getGravityPerTick()  { return gravityPerTick; }
+    }
+}
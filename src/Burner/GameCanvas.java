@@ -0,0 +1,209 @@
+package Burner;
+
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.HierarchyBoundsAdapter;
+import java.awt.event.HierarchyEvent;
+import java.awt.image.BufferStrategy;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Active-rendering view: a Canvas drawn by its own render thread through a page-flipped
+ * BufferStrategy, once per display refresh, instead of waiting for Swing to repaint.
+ *
+ * The tick thread publishes a snapshot after every batch of ticks. Each render takes the
+ * newest one and draws it with FrameRenderer's interpolation, using the time elapsed since
+ * the snapshot was captured, so a falling piece or a gravity-animated block moves a few
+ * pixels per refresh on a 120/144 Hz display rather than jumping a whole row at a time.
+ *
+ * AWT paint requests are ignored; the render thread redraws the whole canvas every frame.
+ * It never queries the component itself: the size, graphics configuration, refresh rate and
+ * background it draws with are copied on the EDT when the canvas is added, resized or moved.
+ */
+public class GameCanvas extends Canvas implements Runnable {
+    private static final long serialVersionUID = 1L;
+    private static final int DEFAULT_REFRESH_RATE = 60;
+
+    private final FrameExchange frames = new FrameExchange();
+    private final FrameRenderer renderer = new FrameRenderer();
+    private List<GameController> controllers = List.of();
+    private Match match;
+
+    private volatile boolean running;
+    private Thread thread;
+    private long frameCount;
+
+    // what the render thread draws with, see captureView
+    private volatile boolean viewDisplayable;
+    private volatile int viewWidth, viewHeight;
+    private volatile GraphicsConfiguration viewConfig;
+    private volatile int viewRefreshRate = DEFAULT_REFRESH_RATE;
+    private volatile Color viewBackground = Color.BLACK;
+
+    public GameCanvas() {
+        setBackground(Color.BLACK);
+        setFocusable(true);
+        setIgnoreRepaint(true);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                captureView();
+            }
+        });
+        // the window may have moved to another screen
+        addHierarchyBoundsListener(new HierarchyBoundsAdapter() {
+            @Override
+            public void ancestorMoved(HierarchyEvent e) {
+                captureView();
+            }
+        });
+    }
+
+    /** Copy the component state the render thread needs. Call on the EDT. */
+    private void captureView() {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        viewConfig = gc;
+        viewRefreshRate = refreshRate(gc);
+        viewWidth = getWidth();
+        viewHeight = getHeight();
+        viewDisplayable = isDisplayable();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        captureView();
+    }
+
+    @Override
+    public void removeNotify() {
+        viewDisplayable = false;
+        super.removeNotify();
+    }
+
+    @Override
+    public void setBackground(Color color) {
+        super.setBackground(color);
+        viewBackground = color;
+    }
+
+    public void setMatch(Match match) {
+        this.match = match;
+        this.controllers = match.getControllers();
+        setPreferredSize(BoardLayout.of(controllers).getSize());
+    }
+
+    /**
+     * Copy the current game state into a snapshot for the render thread.
+     * Call this from the thread that mutates game state; every tick's state is published,
+     * since the sub-row progress changes even when no block has changed rows.
+     */
+    public void publishFrame() {
+        if (controllers.isEmpty()) return;
+        FrameSnapshot snapshot = frames.beginWrite();
+        snapshot.capture(controllers, frames.getPublishedCount() + 1);
+        frames.publish();
+    }
+
+    /** Start rendering; the canvas must be in a showing window. */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "game-render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    /** Frames shown so far. */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        // drawn by the render thread
+    }
+
+    @Override
+    public void update(Graphics g) {
+        // drawn by the render thread
+    }
+
+    @Override
+    public void run() {
+        BufferStrategy strategy = null;
+        long period = 1_000_000_000L / DEFAULT_REFRESH_RATE;
+        long deadline = System.nanoTime();
+        while (running) {
+            if (!viewDisplayable || viewWidth <= 0 || viewHeight <= 0) {
+                LockSupport.parkNanos(period);
+                continue;
+            }
+            if (strategy == null) {
+                strategy = createStrategy();
+                period = 1_000_000_000L / viewRefreshRate;
+                deadline = System.nanoTime();
+            }
+            render(strategy);
+            frameCount++;
+
+            // the final frame is on screen; nothing moves after game over
+            if (match != null && match.isOver()) {
+                running = false;
+                break;
+            }
+
+            // With a vsynced flip, show() has already waited for the refresh. Otherwise pace
+            // to the refresh rate here; after a stall, start counting again from now.
+            deadline += period;
+            long now = System.nanoTime();
+            if (deadline - now > 0) {
+                LockSupport.parkNanos(deadline - now);
+            } else if (now - deadline > period) {
+                deadline = now;
+            }
+        }
+    }
+
+    private void render(BufferStrategy strategy) {
+        FrameSnapshot frame = frames.acquire();
+        double alpha = (System.nanoTime() - frame.getCaptureNanos()) / (double) TickScheduler.TICK_NANOS;
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    renderer.setBackground(viewBackground);
+                    renderer.paintInterpolated(g, frame, viewWidth, viewHeight, viewConfig, alpha);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    /** Two buffers with page flipping if the platform offers it, otherwise whatever it picks. */
+    private BufferStrategy createStrategy() {
+        try {
+            createBufferStrategy(2, new BufferCapabilities(
+                    new ImageCapabilities(true), new ImageCapabilities(true),
+                    BufferCapabilities.FlipContents.UNDEFINED));
+        } catch (AWTException e) {
+            createBufferStrategy(2);
+        }
+        return getBufferStrategy();
+    }
+
+    private static int refreshRate(GraphicsConfiguration gc) {
+        if (gc == null) return DEFAULT_REFRESH_RATE;
+        int rate = gc.getDevice().getDisplayMode().getRefreshRate();
+        return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH_RATE : rate;
+    }
+}
@@ -2,24 +2,23 @@ package Burner;
 
 import Block.*;
 
-import javax.imageio.ImageIO;
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 
 /**
  * Coordinates input, game loop, block spawning, clearing, and power‐up activation.
+ * All game state changes happen inside tick(), which its Match calls each step;
+ * key handlers only queue PlayerActions. Nothing here depends on AWT or Swing.
  */
-public class GameController implements KeyListener {
+public class GameController {
     private final GameGrid grid;
     private final BlockFactory blockFactory;
-    private final Runnable repaintCallback;
-    private final GamePanel gamePanel;
     private final GameLogic gameLogic;
+    private Match match;
+    private int playerIndex;
+    // every other player in the match, in seat order; fixed once the match is built
+    private GameController[] opponents = new GameController[0];
 
     private Block currentBlock;
     private Block nextBlock;
@@ -27,27 +26,24 @@ public class GameController implements KeyListener {
     private boolean blockActive = false;
     private double dropAccumulator = 0.0;
 
-    private Timer timer;
-    private JFrame gameOverFrame;
-
-    private static volatile boolean globalGameOver = false;
-
-    private static final int FRAME_DELAY = 16;                    // ~60 FPS
     private static final double NORMAL_SPEED = 1.0 / 400.0;        // rows per ms
     private static final double SOFT_DROP_MULT = 8.0;              // soft-drop factor
 
-    // how many seconds since gameStart
-    private int elapsedSeconds = 0;
-    private Timer gameTimer;
+    // inputs from the key handlers, applied at the start of the next tick
+    private final Queue<PlayerAction> pendingActions = new ConcurrentLinkedQueue<>();
+
+    // ticks since gameStart; the clock is derived from this
+    private long elapsedTicks = 0;
+
+    // per-player stats for batch runs
+    private int piecesSpawned = 0;
+    private final int[] powerUpUses = new int[PowerUpType.values().length];
+
     public GameController(GameGrid grid,
                           BlockFactory blockFactory,
-                          Runnable repaintCallback,
-                          GamePanel gamePanel,
                           GameLogic gameLogic) {
         this.grid = grid;
         this.blockFactory = blockFactory;
-        this.repaintCallback = repaintCallback;
-        this.gamePanel = gamePanel;
         this.gameLogic = gameLogic;
         this.gameLogic.setController(this);
     }
@@ -57,45 +53,84 @@ public class GameController implements KeyListener {
         return gameLogic;
     }
 
-    /** so effects can find the panel & its other controllers */
-    public GamePanel getGamePanel() {
-        return gamePanel;
+    /** so effects can find the other players */
+    public Match getMatch() {
+        return match;
+    }
+
+    void setMatch(Match match, int playerIndex) {
+        this.match = match;
+        this.playerIndex = playerIndex;
+    }
+
+    void setOpponents(GameController[] opponents) {
+        this.opponents = opponents;
+    }
+
+    /**
+     * The other players, in seat order, for effects that hit every opponent.
+     * The array is shared; don't modify it.
+     */
+    public GameController[] getOpponents() {
+        return opponents;
+    }
+
+    /** This player's seat in its match. */
+    public int getPlayerIndex() {
+        return playerIndex;
     }
 
     public int getElapsedSeconds() {
-        return elapsedSeconds;
+        return (int) (elapsedTicks / TickScheduler.TICKS_PER_SECOND);
     }
 
-    /** Initialize and start the game loop. */
-    public void startGame() {
-        gamePanel.addKeyListener(this);
-        gamePanel.setFocusable(true);
-        gamePanel.requestFocusInWindow();
+    public boolean isGameOver() {
+        return match != null && match.isOver();
+    }
 
+    /** Set up the first piece; the Match then drives the game by calling tick(). */
+    public void startGame() {
         spawnNewBlock();
         blockActive = true;
+        elapsedTicks = 0;
+    }
 
-        timer = new Timer(FRAME_DELAY, e -> gameLoop());
-        elapsedSeconds = 0;
-        gameTimer = new Timer(1000, e -> {
-            elapsedSeconds++;
-            // repaint both panels to show updated time
-            SwingUtilities.invokeLater(repaintCallback);
-        });
-        gameTimer.start();
+    /** Queue an input; safe to call from any thread. */
+    public void submit(PlayerAction action) {
+        pendingActions.add(action);
+    }
 
-        timer.start();
+    /** Advance this player by one fixed tick: input, descent, gravity animation, clock. */
+    public void tick() {
+        if (isGameOver()) return;
+        PlayerAction action;
+        while ((action = pendingActions.poll()) != null) {
+            if (match != null) match.inputApplied(playerIndex, action);
+            apply(action);
+        }
+        gameLoop();
+        gameLogic.tickGravity();
+        elapsedTicks++;
+    }
+
+    private void apply(PlayerAction action) {
+        switch (action) {
+            case MOVE_LEFT:     moveBlockLeft();   break;
+            case MOVE_RIGHT:    moveBlockRight();  break;
+            case DROP:          drop();            break;
+            case POWER_UP:      activatePowerUp(); break;
+            case CYCLE:
+                if (currentBlock != null) currentBlock.cycleColors();
+                break;
+            case SOFT_DROP_ON:  downPressed = true;  break;
+            case SOFT_DROP_OFF: downPressed = false; break;
+        }
     }
 
     /** Core loop: handle timed descent, locking, clears, and spawning. */
     private void gameLoop() {
-        if (globalGameOver) {
-            timer.stop();
-            return;
-        }
         // calculate drop amount (soft‐drop vs. normal)
-        double speed = NORMAL_SPEED * (downPressed ? SOFT_DROP_MULT : 1.2);
-        dropAccumulator += speed * FRAME_DELAY;
+        dropAccumulator += rowsPerTick();
 
         // drop loop
         while (dropAccumulator >= 1.0) {
@@ -107,7 +142,7 @@ public class GameController implements KeyListener {
                 triggerMidasEffects();
 
                 blockActive = false;
-                gameLogic.clearAndApplyGravity(repaintCallback);
+                gameLogic.clearAndApplyGravity();
 
             }
             dropAccumulator -= 1.0;
@@ -118,11 +153,27 @@ public class GameController implements KeyListener {
             spawnNewBlock();
             blockActive = true;
         }
+    }
+
 
-        // repaint the panel each frame
-        repaintCallback.run();
+    private double rowsPerTick() {
+        double speed = NORMAL_SPEED * (downPressed ? SOFT_DROP_MULT : 1.2);
+        return speed * TickScheduler.TICK_MS;
+    }
+
+    /** For drawing: how far (0 to 1) the falling piece is toward the next row, 0 if it is resting. */
+    public double getDropProgress() {
+        return isFalling() ? dropAccumulator : 0.0;
     }
 
+    /** For drawing: rows the falling piece descends per tick right now, 0 if it is resting. */
+    public double getDropSpeed() {
+        return isFalling() ? rowsPerTick() : 0.0;
+    }
+
+    private boolean isFalling() {
+        return blockActive && currentBlock != null && canMoveDown();
+    }
 
     /** Fetch nextPiece if null and advance current/next blocks. */
     private void spawnNewBlock() {
@@ -133,34 +184,31 @@ public class GameController implements KeyListener {
         currentBlock = nextBlock;
         currentBlock.setPosition(grid.getColumns()/2 - 1, 0);
         nextBlock = blockFactory.generateBlock();
+        piecesSpawned++;
 
     }
 
     public void addMidasBlock() {
         // Always take row 0, 1, and 2 from column 3 (size 48px each)
         SmallBlock[] cells = new SmallBlock[] {
-                new MidasBlock(0),  // col 3, row 0 → top
-                new MidasBlock(1),  // col 3, row 1 → middle
-                new MidasBlock(2)   // col 3, row 2 → bottom
+                MidasBlock.of(0),  // col 3, row 0 → top
+                MidasBlock.of(1),  // col 3, row 1 → middle
+                MidasBlock.of(2)   // col 3, row 2 → bottom
         };
         Block midas = new Block(cells);
 
         // Override next piece with our fixed‐order midas bar
         this.nextBlock = midas;
-
-        // Repaint preview immediately
-        repaintCallback.run();
     }
 
     public void addMedusaBlock() {
         SmallBlock[] cells = new SmallBlock[] {
-                new MedusaBlock(0),  // col 3, row 3 → top
-                new MedusaBlock(1),  // col 3, row 4 → middle
-                new MedusaBlock(2)   // col 2, row 5 → bottom
+                MedusaBlock.of(0),  // col 3, row 3 → top
+                MedusaBlock.of(1),  // col 3, row 4 → middle
+                MedusaBlock.of(2)   // col 2, row 5 → bottom
         };
         Block medusa = new Block(cells);
         this.nextBlock = medusa;
-        repaintCallback.run();
     }
 
     private void triggerMidasEffects() {
@@ -168,9 +216,8 @@ public class GameController implements KeyListener {
         for (int[] pos : positions) {
             int r = currentBlock.getY() + pos[0];
             int c = currentBlock.getX() + pos[1];
-            SmallBlock sb = grid.getCell(r, c);
-            if (sb instanceof MidasBlock) {
-                ((MidasBlock) sb).activateMidasEffect(grid, r, c);
+            if (grid.getKind(r, c) == CellCode.KIND_MIDAS) {
+                ((MidasBlock) grid.getCell(r, c)).activateMidasEffect(grid, r, c);
             }
         }
     }
@@ -192,17 +239,15 @@ public class GameController implements KeyListener {
         while (moveBlockDown()) {}
         blockActive = false;
 
-        gameLogic.applyGravityWithDelay(() -> {
-            blockActive = true;
-        });
+        gameLogic.startGravity();
     }
 
     /** Activate stored PowerUpBlock on SPACE. */
     public void activatePowerUp() {
         PowerUpBlock pu = gameLogic.getPowerUpInventory().use();
         if (pu != null) {
+            powerUpUses[pu.getType().ordinal()]++;
             pu.activate(gameLogic);
-            repaintCallback.run();
         }
     }
 
@@ -210,7 +255,6 @@ public class GameController implements KeyListener {
     public void moveBlockLeft() {
         if (blockActive && canMoveLeft()) {
             currentBlock.moveLeft();
-            repaintCallback.run();
         }
     }
 
@@ -218,7 +262,6 @@ public class GameController implements KeyListener {
     public void moveBlockRight() {
         if (blockActive && canMoveRight()) {
             currentBlock.moveRight();
-            repaintCallback.run();
         }
     }
 
@@ -234,12 +277,16 @@ public class GameController implements KeyListener {
                 SmallBlock cell = cells[i];
                 grid.setCell(row, col, cell);
 
-                // → right here: if it's a MidasBlock, trigger its effect
-                if (cell instanceof MidasBlock) {
-                    ((MidasBlock)cell).activateMidasEffect(grid, row, col);
-                }
-                if (cell instanceof MedusaBlock) {
-                    ((MedusaBlock)cell).activateMedusaEffect(grid, row, col);
+                // → right here: Midas and Medusa blocks fire their effect on landing
+                switch (cell.getKind()) {
+                    case CellCode.KIND_MIDAS:
+                        ((MidasBlock) cell).activateMidasEffect(grid, row, col);
+                        break;
+                    case CellCode.KIND_MEDUSA:
+                        ((MedusaBlock) cell).activateMedusaEffect(grid, row, col);
+                        break;
+                    default:
+                        break;
                 }
             }
         }
@@ -280,80 +327,39 @@ public class GameController implements KeyListener {
         return true;
     }
 
+    public int getPiecesSpawned()  { return piecesSpawned; }
+
+    /** How many times this player has activated the given power-up. */
+    public int getPowerUpUses(PowerUpType type) {
+        return powerUpUses[type.ordinal()];
+    }
+
     public GameGrid getGrid()      { return grid;         }
     public Block getCurrentBlock() { return currentBlock; }
     public Block getNextBlock()    { return nextBlock;    }
 
-    /** Expose inventory for rendering in GamePanel */
-    public PowerUpInventory getPowerUpInventory() { return gameLogic.getPowerUpInventory(); }
-
-    @Override
-    public void keyPressed(KeyEvent e) {
-        if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-            downPressed = true;
-        }
+    /**
+     * Zobrist fingerprint of this player's state: grid cells, the falling piece's
+     * position and order, the next piece and the stored power-ups.
+     */
+    public long getStateHash() {
+        long h = grid.getHash() ^ gameLogic.getPowerUpInventory().getHash();
+        if (currentBlock != null) h ^= currentBlock.getHash();
+        if (nextBlock != null) h ^= nextBlock.getPreviewHash();
+        return h;
     }
 
-    @Override
-    public void keyReleased(KeyEvent e) {
-        if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-            downPressed = false;
-        }
-    }
-
-    @Override public void keyTyped(KeyEvent e) {}
+    /** Expose inventory for rendering in GamePanel */
+    public PowerUpInventory getPowerUpInventory() { return gameLogic.getPowerUpInventory(); }
 
-    /** Show game-over dialog and offer restart or exit. */
+    /** End the match if this grid has reached the top row. */
     public void checkGameOver() {
-        for (int col = 0; col < grid.getColumns(); col++) {
-            if (!grid.isCellEmpty(0, col)) {
-                gameOver();
-                return;
-            }
+        if (grid.isTopRowOccupied() && match != null) {
+            match.declareGameOver(this);
         }
     }
 
-    private void gameOver() {
-        // Prevent running twice
-        if (globalGameOver) return;
-        globalGameOver = true;
-        gameTimer.stop();
-        if (timer != null) timer.stop();
-        SwingUtilities.invokeLater(() -> {
-            // If somehow a frame already exists and is visible, bail out
-            if (gameOverFrame != null && gameOverFrame.isShowing()) {
-                return;
-            }
-            gameOverFrame = new JFrame("Game Over");
-            gameOverFrame.setSize(800, 1050);
-            gameOverFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-            try {
-                BufferedImage bgImg = ImageIO.read(
-                        getClass().getResource("/sprites/endscreen.png")
-                );
-                JLabel background = new JLabel(new ImageIcon(bgImg));
-                background.setLayout(new FlowLayout(FlowLayout.CENTER, 20, 20));
-                JButton exitBtn = new JButton("Exit");
-                exitBtn.addActionListener(e -> System.exit(0));
-                background.add(exitBtn);
-                gameOverFrame.setContentPane(background);
-            } catch (IOException ioe) {
-                ioe.printStackTrace();
-                JPanel fallback = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 20));
-                fallback.add(new JLabel("Game Over!"));
-                JButton exitBtn = new JButton("Exit");
-                exitBtn.addActionListener(e -> System.exit(0));
-                fallback.add(exitBtn);
-                gameOverFrame.setContentPane(fallback);
-            }
-
-            gameOverFrame.setLocationRelativeTo(null);
-            gameOverFrame.setVisible(true);
-        });
-    }
     private void restartGame() {
-        if (timer != null) timer.stop();
-        if (gameTimer != null) gameTimer.stop();
         grid.clearAll();
         nextBlock = null;
         startGame();
@@ -2,31 +2,105 @@ package Burner;
 
 import Block.*;
 
-import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
 
 
 //handles grid state
 public class GameGrid {
-    private final SmallBlock[][] grid;
+    // one packed CellCode per cell, row-major; getCell hands out the shared block instances
+    private final byte[] cells;
     private final int rows;
     private final int columns;
 
+    // Bitboards: each row takes (columns + 1) bits. The spare bit per row is always
+    // zero, so shifting a board sideways or diagonally never wraps into the next row.
+    private final int stride;
+    private final long[][] typeMasks;   // one board per matchable typeIndex (Medusa excluded)
+    private final long[] medusaMask;
+    private final long[] occupiedMask;
+
+    // Cells changed since match detection last took them, see takeDirty
+    private final long[] dirtyMask;
+    private int dirtyCount;
+
+    // Live occupancy index, kept in step by setCode so the common queries never scan
+    private final int[] columnTop;      // topmost occupied row per column, -1 if the column is empty
+    private final int[] columnCount;    // occupied cells per column
+    private final int[] typeCount;      // cells per matchable typeIndex
+    private int medusaCount;
+    private int occupiedCount;
+    private int topRowCount;            // occupied cells in row 0
+
+    private final PatternEngine patternEngine;
+
+    // Zobrist hash of the cell contents, updated by setCode
+    private long hash;
+
     public GameGrid(int rows, int columns) {
+        this(rows, columns, SpecialPattern.DEFAULTS);
+    }
+
+    public GameGrid(int rows, int columns, List<SpecialPattern> specialPatterns) {
         this.rows = rows;
         this.columns = columns;
-        this.grid = new SmallBlock[rows][columns];
+        this.cells = new byte[rows * columns];
+
+        this.stride = columns + 1;
+        int words = BitBoard.wordsFor(rows * stride);
+        this.typeMasks = new long[SmallBlock.getTypeCount()][words];
+        this.medusaMask = new long[words];
+        this.occupiedMask = new long[words];
+        this.dirtyMask = new long[words];
+
+        this.columnTop = new int[columns];
+        Arrays.fill(columnTop, -1);
+        this.columnCount = new int[columns];
+        this.typeCount = new int[typeMasks.length];
+
+        this.patternEngine = new PatternEngine(this, specialPatterns);
     }
 
     public boolean isCellEmpty(int row, int col) {
-        return grid[row][col] == null;
+        return cells[row * columns + col] == CellCode.EMPTY;
     }
 
     public SmallBlock getCell(int row, int col) {
-        return grid[row][col]; // Return the SmallBlock object
+        return CellCode.toBlock(cells[row * columns + col]); // shared instance, never allocated
     }
 
     public void setCell(int row, int col, SmallBlock smallBlock) {
-        grid[row][col] = smallBlock;
+        setCode(row, col, CellCode.of(smallBlock));
+    }
+
+    /** Packed CellCode of a cell. */
+    public byte getCode(int row, int col) {
+        return cells[row * columns + col];
+    }
+
+    /** Copy every cell code, row-major, into out (length rows * columns). */
+    public void copyCells(byte[] out) {
+        System.arraycopy(cells, 0, out, 0, cells.length);
+    }
+
+    /** One of the CellCode.KIND_* tags for a cell. */
+    public int getKind(int row, int col) {
+        return CellCode.kind(cells[row * columns + col]);
+    }
+
+    public void setCode(int row, int col, byte code) {
+        int i = row * columns + col;
+        int bit = bitIndex(row, col);
+        byte old = cells[i];
+        if (old == code) return;
+        hash ^= Zobrist.cellKey(i, old) ^ Zobrist.cellKey(i, code);
+        if (old != CellCode.EMPTY) removeFromIndex(old, row, col, bit);
+        cells[i] = code;
+        if (code != CellCode.EMPTY) addToIndex(code, row, col, bit);
+        if (!BitBoard.get(dirtyMask, bit)) {
+            BitBoard.set(dirtyMask, bit);
+            dirtyCount++;
+        }
     }
 
     public boolean isOutOfBounds(int row, int col) {
@@ -42,10 +116,199 @@ public class GameGrid {
     }
 
     public void clearAll() {
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < columns; col++) {
-                grid[row][col] = null;
+        Arrays.fill(cells, CellCode.EMPTY);
+        hash = 0L;
+        for (long[] mask : typeMasks) {
+            Arrays.fill(mask, 0L);
+        }
+        Arrays.fill(medusaMask, 0L);
+        Arrays.fill(occupiedMask, 0L);
+        Arrays.fill(dirtyMask, 0L);     // an empty grid has nothing left to match
+        dirtyCount = 0;
+        Arrays.fill(columnTop, -1);
+        Arrays.fill(columnCount, 0);
+        Arrays.fill(typeCount, 0);
+        medusaCount = 0;
+        occupiedCount = 0;
+        topRowCount = 0;
+    }
+
+    // ---- occupancy queries, all O(1) except topOccupiedRow which is O(columns) ----
+
+    /** Topmost occupied row in a column, or -1 if the column is empty. */
+    public int columnTop(int col) {
+        return columnTop[col];
+    }
+
+    /** Rows from the bottom up to and including the topmost block of a column. */
+    public int columnHeight(int col) {
+        int top = columnTop[col];
+        return top < 0 ? 0 : rows - top;
+    }
+
+    public boolean isColumnEmpty(int col) {
+        return columnCount[col] == 0;
+    }
+
+    /** Topmost occupied row anywhere in the grid, or -1 if the grid is empty. */
+    public int topOccupiedRow() {
+        int top = -1;
+        for (int c = 0; c < columns; c++) {
+            int t = columnTop[c];
+            if (t >= 0 && (top < 0 || t < top)) top = t;
+        }
+        return top;
+    }
+
+    public boolean isTopRowOccupied() {
+        return topRowCount > 0;
+    }
+
+    /** Number of occupied cells. */
+    public int occupiedCount() {
+        return occupiedCount;
+    }
+
+    public boolean isEmpty() {
+        return occupiedCount == 0;
+    }
+
+    /** Number of cells that match as the given typeIndex (Medusa blocks are not counted). */
+    public int countOf(int typeIndex) {
+        return typeCount[typeIndex];
+    }
+
+    public int medusaCount() {
+        return medusaCount;
+    }
+
+    /** Drops every block in a column straight down so the column has no gaps. */
+    public void collapseColumn(int col) {
+        int top = columnTop[col];
+        if (top < 0) return;
+        int writeRow = rows - 1;
+        for (int r = rows - 1; r >= top; r--) {
+            byte code = cells[r * columns + col];
+            if (code != CellCode.EMPTY) {
+                if (writeRow != r) {
+                    setCode(writeRow, col, code);
+                    setCode(r, col, CellCode.EMPTY);
+                }
+                writeRow--;
             }
         }
     }
+
+    // ---- bitboard view ----
+
+    /** Bits between the start of one row and the start of the next (columns + guard bit). */
+    public int getStride() {
+        return stride;
+    }
+
+    /** Number of longs in every board returned by this grid. */
+    public int getMaskWords() {
+        return occupiedMask.length;
+    }
+
+    public int bitIndex(int row, int col) {
+        return row * stride + col;
+    }
+
+    public int rowOfBit(int bit) {
+        return bit / stride;
+    }
+
+    public int columnOfBit(int bit) {
+        return bit % stride;
+    }
+
+    /** Cells that match as the given typeIndex. Live view, do not modify. */
+    public long[] getTypeMask(int typeIndex) {
+        return typeMasks[typeIndex];
+    }
+
+    public int getTypeMaskCount() {
+        return typeMasks.length;
+    }
+
+    /** Cells holding a MedusaBlock. Live view, do not modify. */
+    public long[] getMedusaMask() {
+        return medusaMask;
+    }
+
+    /** Cells holding any block. Live view, do not modify. */
+    public long[] getOccupiedMask() {
+        return occupiedMask;
+    }
+
+    /**
+     * Zobrist hash of every cell. Equal grids of the same size always have equal hashes,
+     * so this is an O(1) fingerprint for duplicate detection and replay checks.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /** Special patterns compiled for this grid's size. */
+    public PatternEngine getPatternEngine() {
+        return patternEngine;
+    }
+
+    // ---- dirty tracking ----
+
+    /** Number of cells changed since the last takeDirty. */
+    public int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    /**
+     * Copies the changed-cell board into {@code out} and starts a fresh one.
+     * @return how many cells were dirty
+     */
+    public int takeDirty(long[] out) {
+        System.arraycopy(dirtyMask, 0, out, 0, dirtyMask.length);
+        Arrays.fill(dirtyMask, 0L);
+        int taken = dirtyCount;
+        dirtyCount = 0;
+        return taken;
+    }
+
+    private void addToIndex(byte code, int row, int col, int bit) {
+        BitBoard.set(occupiedMask, bit);
+        if (CellCode.kind(code) == CellCode.KIND_MEDUSA) {
+            BitBoard.set(medusaMask, bit);
+            medusaCount++;
+        } else {
+            int type = CellCode.matchType(code);
+            BitBoard.set(typeMasks[type], bit);
+            typeCount[type]++;
+        }
+        occupiedCount++;
+        columnCount[col]++;
+        if (row == 0) topRowCount++;
+        if (columnTop[col] < 0 || row < columnTop[col]) columnTop[col] = row;
+    }
+
+    private void removeFromIndex(byte code, int row, int col, int bit) {
+        BitBoard.clear(occupiedMask, bit);
+        if (CellCode.kind(code) == CellCode.KIND_MEDUSA) {
+            BitBoard.clear(medusaMask, bit);
+            medusaCount--;
+        } else {
+            int type = CellCode.matchType(code);
+            BitBoard.clear(typeMasks[type], bit);
+            typeCount[type]--;
+        }
+        occupiedCount--;
+        if (row == 0) topRowCount--;
+        if (--columnCount[col] == 0) {
+            columnTop[col] = -1;
+        } else if (row == columnTop[col]) {
+            // the top block left; walk down to the next one (cells above it are empty)
+            int r = row + 1;
+            while (cells[r * columns + col] == CellCode.EMPTY) r++;
+            columnTop[col] = r;
+        }
+    }
 }
@@ -1,12 +1,8 @@
 package Burner;
 
 import Block.*;
-import javax.swing.Timer;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.util.Random;
-import java.util.Set;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
  * Handles block placement, gravity, matching-clears (including MidasBlock effects),
@@ -14,15 +10,37 @@ import java.util.HashSet;
  */
 public class GameLogic {
     private final GameGrid grid;
-    private static final int FALL_DELAY_MS = 200;
+    private static final int FALL_DELAY_TICKS = 12;   // 200 ms at 60 ticks per second
+    // Above one dirty cell in this many, one whole-board bitboard pass beats per-cell checks
+    private static final int DENSE_DIRTY_RATIO = 4;
 
     private int penaltySpawnsRemaining = 0;
 
+    // gravity animation state, advanced by tickGravity
+    private boolean gravityActive;
+    private int gravityCountdown;
+
+    // instant mode: gravity and cascades resolve synchronously inside the call that starts them
+    private boolean instantGravity;
+    private boolean settling;
+    private final SettleResult settleResult = new SettleResult();
+
     // Inventory to store cleared power-up blocks
     private final PowerUpInventory powerUpInventory = new PowerUpInventory();
 
     private GameController controller;
 
+    // this player's stream for power-up effects and penalty blocks, see Match
+    private final SplittableRandom random;
+
+    // Match-detection buffers, sized for this grid once and reused by every clearGroups pass
+    private final long[] clearMarks;
+    private final long[] dirtyCells;
+    private final long[] runStarts;
+    private final long[] scratchA;
+    private final long[] scratchB;
+    private final int[] lineSteps;
+
     public void setController(GameController controller) {
         this.controller = controller;
     }
@@ -31,7 +49,22 @@ public class GameLogic {
     }
 
     public GameLogic(GameGrid grid) {
+        this(grid, new SplittableRandom());
+    }
+
+    public GameLogic(GameGrid grid, SplittableRandom random) {
         this.grid = grid;
+        this.random = random;
+
+        int words = grid.getMaskWords();
+        this.clearMarks = new long[words];
+        this.dirtyCells = new long[words];
+        this.runStarts  = new long[words];
+        this.scratchA   = new long[words];
+        this.scratchB   = new long[words];
+        int stride = grid.getStride();
+        // right, down, down-right, down-left
+        this.lineSteps = new int[]{1, stride, stride + 1, stride - 1};
     }
 
     // Expose the banked power-ups for rendering or activation.
@@ -42,46 +75,78 @@ public class GameLogic {
     public GameGrid getGrid() {
         return grid;
     }
-    // Animate gravity with a delay, then trigger clear-and-gravity loops.
-
-    public void applyGravityWithDelay(Runnable repaint) {
-        Timer timer = new Timer(FALL_DELAY_MS, null);
-        timer.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                boolean moved = false;
-                for (int col = 0; col < grid.getColumns(); col++) {
-                    for (int row = grid.getRows() - 2; row >= 0; row--) {
-                        SmallBlock sb = grid.getCell(row, col);
-                        if (sb != null && grid.isCellEmpty(row + 1, col)) {
-                            grid.setCell(row + 1, col, sb);
-                            grid.setCell(row, col, null);
-                            moved = true;
-                        }
-                    }
-                }
-                if (moved) {
-                    repaint.run();
-                } else {
-                    timer.stop();
-                    if (clearAndApplyGravity(repaint)) {
-                        applyGravityWithDelay(repaint);
-                    }
+
+    /** Seeded stream for effects' random choices; never share it across players. */
+    public SplittableRandom getRandom() {
+        return random;
+    }
+    /**
+     * Start the gravity animation: floating blocks fall one row every FALL_DELAY_TICKS,
+     * then clear-and-gravity runs again. Calling this while the animation is already
+     * running does nothing, so cascades never stack up several animations on one grid.
+     */
+    public void startGravity() {
+        if (instantGravity) {
+            settle();
+            return;
+        }
+        if (gravityActive) return;
+        gravityActive = true;
+        gravityCountdown = FALL_DELAY_TICKS;
+    }
+
+    /** For drawing: how far (0 to 1) animated blocks are toward their next row, or -1 when idle. */
+    public double getGravityProgress() {
+        return gravityActive ? (FALL_DELAY_TICKS - gravityCountdown) / (double) FALL_DELAY_TICKS : -1.0;
+    }
+
+    /** Ticks between rows of the gravity animation. */
+    public static int getFallDelayTicks() {
+        return FALL_DELAY_TICKS;
+    }
+
+    /** True while floating blocks are still being animated down. */
+    public boolean isGravityActive() {
+        return gravityActive;
+    }
+
+    /** Advance the gravity animation by one tick; called by GameController.tick(). */
+    public void tickGravity() {
+        if (!gravityActive || --gravityCountdown > 0) return;
+        gravityCountdown = FALL_DELAY_TICKS;
+
+        boolean moved = false;
+        for (int col = 0; col < grid.getColumns(); col++) {
+            // nothing sits above the column top, so the scan can stop there
+            int top = grid.columnTop(col);
+            if (top < 0) continue;
+            for (int row = grid.getRows() - 2; row >= top; row--) {
+                byte code = grid.getCode(row, col);
+                if (code != CellCode.EMPTY && grid.isCellEmpty(row + 1, col)) {
+                    grid.setCode(row + 1, col, code);
+                    grid.setCode(row, col, CellCode.EMPTY);
+                    moved = true;
                 }
             }
-        });
-        timer.start();
+        }
+        if (!moved) {
+            gravityActive = false;
+            clearAndApplyGravity();   // restarts the animation if anything cleared
+        }
     }
 
     /**
      * Clears matching groups and reapplies gravity until no more clears.
      * @return true if any blocks were cleared this cycle
      */
-    public boolean clearAndApplyGravity(Runnable repaint) {
+    public boolean clearAndApplyGravity() {
+        if (instantGravity) {
+            return resolve(false).getChainDepth() > 0;
+        }
         boolean anyCleared = false;
-        while (clearGroups()) {
+        while (clearGroups() > 0) {
             anyCleared = true;
-            applyGravityWithDelay(repaint);
+            startGravity();
         }
         if (anyCleared && penaltySpawnsRemaining > 0) {
             // consume one budget and send penalties now
@@ -91,158 +156,220 @@ public class GameLogic {
         return anyCleared;
     }
 
+    /**
+     * Switch between animated gravity (blocks fall a row every FALL_DELAY_TICKS while play
+     * goes on) and instant gravity for headless and bot play, where every startGravity() and
+     * clearAndApplyGravity() settles the board and the whole cascade before returning.
+     */
+    public void setInstantGravity(boolean instant) {
+        this.instantGravity = instant;
+        if (instant && gravityActive) {
+            gravityActive = false;
+            settle();
+        }
+    }
+
+    public boolean isInstantGravity() {
+        return instantGravity;
+    }
+
+    /**
+     * Drop every floating block at once, then clear and drop again until the board is stable.
+     * Clears and gravity happen in the same order as the animation, so the final board is the
+     * one the animated path reaches when nothing moves in the meantime.
+     * @return this logic's reused result object, valid until the next settle
+     */
+    public SettleResult settle() {
+        return resolve(true);
+    }
+
+    /** The result of the most recent instant settle. */
+    public SettleResult getLastSettle() {
+        return settleResult;
+    }
+
+    private SettleResult resolve(boolean gravityFirst) {
+        // a penalty we send can make an opponent send one straight back; the loop
+        // below is already going to compact and re-check, so don't nest a second one
+        if (settling) return settleResult;
+        settling = true;
+        settleResult.reset();
+        try {
+            if (!gravityFirst && !clearStep()) return settleResult;
+            do {
+                compactColumns();
+            } while (clearStep());
+        } finally {
+            settling = false;
+        }
+        return settleResult;
+    }
+
+    /** One chain step: clear until nothing matches, record it, and send any penalty due. */
+    private boolean clearStep() {
+        int banked = powerUpInventory.size();
+        int cleared = 0;
+        int n;
+        while ((n = clearGroups()) > 0) {
+            cleared += n;
+        }
+        if (cleared == 0) return false;
+        settleResult.addStep(cleared, powerUpInventory.size() - banked);
+        if (penaltySpawnsRemaining > 0) {
+            spawnPenaltyBlocksOnOpponents();
+            penaltySpawnsRemaining--;
+        }
+        return true;
+    }
+
+    /** Gravity in one pass per column: every block drops onto the one below it. */
+    private void compactColumns() {
+        for (int col = 0; col < grid.getColumns(); col++) {
+            grid.collapseColumn(col);
+        }
+    }
+
     /**
      * Detects and clears matching groups of 3 or more,
      * applies MidasBlock effects, and banks any PowerUpBlocks.
-     * @return true if any group was cleared
+     * Only lines through cells changed since the last pass are examined: every
+     * match made of unchanged cells was already cleared by an earlier pass.
+     * @return how many matched cells were cleared (0 if none)
      */
-    private boolean clearGroups() {
-        int rows = grid.getRows();
-        int cols = grid.getColumns();
-        boolean[][] toClear = new boolean[rows][cols];
-        boolean found = false;
-
-        // Mark all matches
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                if (markMatches(r, c, toClear)) {
-                    found = true;
+    private int clearGroups() {
+        int dirty = grid.takeDirty(dirtyCells);
+        if (dirty == 0) return 0;
+
+        long[] toClear = clearMarks;
+        Arrays.fill(toClear, 0L);
+        boolean found;
+        if (dirty * DENSE_DIRTY_RATIO > grid.getRows() * grid.getColumns()) {
+            found = markLineMatches(toClear);
+        } else {
+            found = false;
+            for (int w = 0; w < dirtyCells.length; w++) {
+                long bits = dirtyCells[w];
+                while (bits != 0) {
+                    int bit = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (markLineMatchesThrough(bit, toClear)) {
+                        found = true;
+                    }
                 }
             }
         }
+        if (markSpecialPatterns(toClear)) {
+            found = true;
+        }
 
-        // If any matches, process clearing
+        // If any matches, process clearing (bit order is row-major, same as a cell scan)
+        int cleared = 0;
         if (found) {
-            for (int r = 0; r < rows; r++) {
-                for (int c = 0; c < cols; c++) {
-                    if (toClear[r][c]) {
-                        SmallBlock sb = grid.getCell(r, c);
-                        if (sb instanceof MidasBlock) {
+            for (int w = 0; w < toClear.length; w++) {
+                long bits = toClear[w];
+                while (bits != 0) {
+                    int bit = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int r = grid.rowOfBit(bit);
+                    int c = grid.columnOfBit(bit);
+                    switch (grid.getKind(r, c)) {
+                        case CellCode.KIND_MIDAS:
                             // Goldify all neighbors before clearing
-                            ((MidasBlock) sb).activateMidasEffect(grid, r, c);
-                        } else if (sb instanceof PowerUpBlock) {
+                            ((MidasBlock) grid.getCell(r, c)).activateMidasEffect(grid, r, c);
+                            break;
+                        case CellCode.KIND_POWER_UP:
                             // Bank other power-ups
-                            powerUpInventory.add((PowerUpBlock) sb);
-                        }
-                        // Clear this cell
-                        grid.setCell(r, c, null);
+                            powerUpInventory.add((PowerUpBlock) grid.getCell(r, c));
+                            break;
+                        default:
+                            break;
                     }
+                    // Clear this cell
+                    grid.setCell(r, c, null);
+                    cleared++;
                 }
             }
         }
-        return found;
+        return cleared;
     }
 
     /**
-     * Checks for a 3-match starting at (r,c) in all directions
-     * and marks toClear accordingly.
+     * Marks every horizontal, vertical and diagonal 3-in-a-row touching a dirty cell
+     * with a few shift-and-AND passes over each type's bitboard.
+     * Medusa blocks never appear in a type board, so they never match.
      */
-    private boolean markMatches(int r, int c, boolean[][] toClear) {
-        SmallBlock sb = grid.getCell(r, c);
-        if (sb == null || sb instanceof MedusaBlock) return false;
-        int type = sb.getTypeIndex();
-        int rows = grid.getRows();
-        int cols = grid.getColumns();
+    private boolean markLineMatches(long[] toClear) {
         boolean match = false;
-
-        // Horizontal
-        if (c <= cols - 3 && sameType(r, c + 1, type) && sameType(r, c + 2, type)) {
-            toClear[r][c] = toClear[r][c + 1] = toClear[r][c + 2] = true;
-            match = true;
-        }
-        // Vertical
-        if (r <= rows - 3 && sameType(r + 1, c, type) && sameType(r + 2, c, type)) {
-            toClear[r][c] = toClear[r + 1][c] = toClear[r + 2][c] = true;
-            match = true;
-        }
-        // Diagonal down-right
-        if (r <= rows - 3 && c <= cols - 3
-                && sameType(r + 1, c + 1, type) && sameType(r + 2, c + 2, type)) {
-            toClear[r][c] = toClear[r + 1][c + 1] = toClear[r + 2][c + 2] = true;
-            match = true;
-        }
-        // Diagonal down-left
-        if (r <= rows - 3 && c >= 2
-                && sameType(r + 1, c - 1, type) && sameType(r + 2, c - 2, type)) {
-            toClear[r][c] = toClear[r + 1][c - 1] = toClear[r + 2][c - 2] = true;
-            match = true;
-        }
-        // Special patterns: columns 0-5 carry either {0,1,2,5,4,3} or {0,1,2,3,4,5}
-        if (c == 0 && cols >= 6) {
-            int[][] patterns = {
-                    {0, 1, 5, 3, 4, 2},
-                    {0, 1, 2, 3, 4, 5}
-            };
-            for (int[] pattern : patterns) {
-                boolean sequence = true;
-                for (int col = 0; col < 6; col++) {
-                    SmallBlock cell = grid.getCell(r, col);
-                    if (cell == null || cell instanceof MedusaBlock || cell.getTypeIndex() != pattern[col]) {
-                        sequence = false;
-                        break;
-                    }
-                }
-                if (sequence) {
-                    // Mark all six columns in this row for clearing
-                    for (int col = 0; col < 6; col++) {
-                        toClear[r][col] = true;
-                    }
+        for (int step : lineSteps) {
+            BitBoard.runStartsTouching(dirtyCells, step, runStarts, scratchA);
+            for (int type = 0; type < grid.getTypeMaskCount(); type++) {
+                if (grid.countOf(type) < 3) continue;
+                long[] board = grid.getTypeMask(type);
+                if (BitBoard.markRunsOfThree(board, step, runStarts, toClear, scratchA, scratchB)) {
                     match = true;
-                    // Trigger penalty on opponents
-                    // Start penalty effect: immediate and next 10 spawns
-                    penaltySpawnsRemaining = 10;
-                    spawnPenaltyBlocksOnOpponents();
-                    break;
                 }
             }
         }
+        return match;
+    }
 
-        //special pattern - diagonal pattern
-        if (r == 17 && c == 0 && rows >= 18 && cols >= 6) {
-            boolean diagonalPattern = true;
-            for (int i = 0; i < 6; i++) {
-                SmallBlock cell = grid.getCell(17 - i, i);
-                if (cell == null
-                        || cell instanceof MedusaBlock
-                        || cell.getTypeIndex() != i) {
-                    diagonalPattern = false;
-                    break;
-                }
-            }
-            if (diagonalPattern) {
-                // mark all six blocks for clearing
-                for (int i = 0; i < 6; i++) {
-                    toClear[17 - i][i] = true;
+    /**
+     * Marks every 3-in-a-row that passes through one cell, checking the three
+     * windows that contain it in each of the four directions.
+     */
+    private boolean markLineMatchesThrough(int bit, long[] toClear) {
+        int type = CellCode.matchType(grid.getCode(grid.rowOfBit(bit), grid.columnOfBit(bit)));
+        if (type < 0 || grid.countOf(type) < 3) return false;
+        long[] board = grid.getTypeMask(type);
+        int limit = grid.getRows() * grid.getStride();
+        boolean match = false;
+        for (int step : lineSteps) {
+            for (int k = 0; k < 3; k++) {
+                int start = bit - k * step;
+                // guard bits are never set, so a window can't wrap into the next row
+                if (start < 0 || start + 2 * step >= limit) continue;
+                if (BitBoard.get(board, start)
+                        && BitBoard.get(board, start + step)
+                        && BitBoard.get(board, start + 2 * step)) {
+                    BitBoard.set(toClear, start);
+                    BitBoard.set(toClear, start + step);
+                    BitBoard.set(toClear, start + 2 * step);
+                    match = true;
                 }
-                match = true;
             }
         }
         return match;
     }
+
+    /**
+     * Runs the grid's compiled special patterns (BURNER rows, the diagonal sequence, ...)
+     * over the dirty cells, marks toClear and fires each matched pattern's effect.
+     */
+    private boolean markSpecialPatterns(long[] toClear) {
+        PatternEngine patterns = grid.getPatternEngine();
+        int matched = patterns.evaluate(grid, dirtyCells, toClear);
+        for (int i = 0; i < matched; i++) {
+            if (patterns.getMatch(i).getEffect() == SpecialPattern.Effect.START_PENALTY) {
+                // Trigger penalty on opponents
+                // Start penalty effect: immediate and next 10 spawns
+                penaltySpawnsRemaining = 10;
+                spawnPenaltyBlocksOnOpponents();
+            }
+        }
+        return matched > 0;
+    }
     // After detecting your special pattern, call this to spawn two “attack” blocks on each opponent.
     private void spawnPenaltyBlocksOnOpponents() {
         GameController self  = controller;
-        GamePanel      panel = self.getGamePanel();
-        Random         rnd   = new Random();
-
-        for (GameController opponent : panel.getControllers()) {
-            if (opponent == self) continue;
+        SplittableRandom rnd = random;
 
+        for (GameController opponent : self.getOpponents()) {
             GameGrid oppGrid = opponent.getGrid();
             int      rows    = oppGrid.getRows();
             int      cols    = oppGrid.getColumns();
 
             // 1) Find the topmost occupied row (global)
-            int globalTop = -1;
-            outer:
-            for (int r = 0; r < rows; r++) {
-                for (int c = 0; c < cols; c++) {
-                    if (!oppGrid.isCellEmpty(r, c)) {
-                        globalTop = r;
-                        break outer;
-                    }
-                }
-            }
+            int globalTop = oppGrid.topOccupiedRow();
 
             // 2) Compute spawnRow:
             //    - if there's at least one block, two rows above that
@@ -257,25 +384,28 @@ public class GameLogic {
             spawnRow = Math.max(0, spawnRow);
 
             // 3) Pick two distinct random columns
-            Set<Integer> picks = new HashSet<>();
-            while (picks.size() < 2) {
-                picks.add(rnd.nextInt(cols));
+            int first = rnd.nextInt(cols);
+            int second = rnd.nextInt(cols);
+            while (second == first) {
+                second = rnd.nextInt(cols);
             }
 
-            // 4) Place one block in each picked column at spawnRow (or highest free cell above it)
-            for (int c : picks) {
+            // 4) Place one block in each picked column at spawnRow (or highest free cell above it),
+            //    leftmost first
+            for (int pick = 0; pick < 2; pick++) {
+                int c = pick == 0 ? Math.min(first, second) : Math.max(first, second);
                 int targetRow = spawnRow;
                 while (targetRow > 0 && !oppGrid.isCellEmpty(targetRow, c)) {
                     targetRow--;
                 }
                 if (oppGrid.isCellEmpty(targetRow, c)) {
-                    SmallBlock penalty = new SmallBlock(rnd.nextInt(6));
+                    SmallBlock penalty = SmallBlock.of(rnd.nextInt(SmallBlock.TYPE_COUNT));
                     oppGrid.setCell(targetRow, c, penalty);
                 }
             }
 
             // 5) Trigger gravity so they start falling
-            opponent.getGameLogic().applyGravityWithDelay(panel::repaint);
+            opponent.getGameLogic().startGravity();
         }
     }
     public void notifyBlockSpawned() {
@@ -284,10 +414,4 @@ public class GameLogic {
             penaltySpawnsRemaining--;
         }
     }
-    // Utility to compare typeIndex for matching.
-
-    private boolean sameType(int r, int c, int typeIndex) {
-        SmallBlock cell = grid.getCell(r, c);
-        return cell != null && !(cell instanceof MedusaBlock) && cell.getTypeIndex() == typeIndex;
-    }
 }
@@ -3,193 +3,349 @@ package Burner;
 import Block.*;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.util.Arrays;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.util.List;
 
+/**
+ * Passive-rendering view: the tick thread publishes snapshots and asks Swing to repaint the
+ * regions that changed; drawing itself is done by a FrameRenderer. See GameCanvas for the
+ * actively rendered, interpolated alternative.
+ */
 public class GamePanel extends JPanel {
-    private static final int GRID_ROWS       = 18;
-    private static final int GRID_COLS       = 6;
-    private static final int PREVIEW_COLS    = 3;
-    private static final int SPACING_Y       = 10;
-    private static final int GAP             = 15;
-    private static final int DIVIDER_STROKE  = 4;
-
-    private GameController controller1;
-    private GameController controller2;
-
-    // new fields for global offset
-    private int globalOffsetX = 50;
-    private int globalOffsetY = 50;
+    private List<GameController> controllers = List.of();
+
+    // Game state reaches paintComponent only through published snapshots, never directly
+    private final FrameExchange frames = new FrameExchange();
+    private final FrameRenderer renderer = new FrameRenderer();
+
+    // Tick-thread side of dirty tracking: a copy of the last published frame, the regions
+    // the next one changes (grid, preview and inventory per player, then the clock), and the
+    // power-up animation frame last seen
+    private final FrameSnapshot lastPublished = new FrameSnapshot();
+    private Rectangle[] dirty = new Rectangle[0];
+    private int lastAnimationFrame = -1;
+    private BoardLayout layout;
+    // panel pixels per board unit at the current size, see FrameRenderer.viewScale; sprites
+    // land on rounded device pixels, so regions reach EDGE pixels past the scaled far edge
+    private double viewScale = 1.0;
+    private static final int EDGE = 3;
+    // the panel's size and display scale, for the tick thread: Swing state is only read on
+    // the EDT, which refreshes these on every resize and paint
+    private volatile int viewWidth, viewHeight;
+    private volatile double viewDeviceScale = 1.0;
+
+    // performance overlay, top right; stats are collected only while it is shown
+    private static final int HUD_MARGIN = 10;
+    private Match match;
+    private PerfStats perfStats;
+    private PerfHud perfHud;
+    private volatile boolean hudVisible;
+    private long lastHudRepaint;
 
     // Adjust the X offset of all drawing.
     public void setGlobalOffsetX(int x) {
-        this.globalOffsetX = x;
+        renderer.setOffset(x, renderer.getOffsetY());
         repaint();
     }
     // Adjust the Y offset of all drawing.
     public void setGlobalOffsetY(int y) {
-        this.globalOffsetY = y;
+        renderer.setOffset(renderer.getOffsetX(), y);
         repaint();
     }
-    public int getGlobalOffsetX() { return globalOffsetX; }
-    public int getGlobalOffsetY() { return globalOffsetY; }
+    public int getGlobalOffsetX() { return renderer.getOffsetX(); }
+    public int getGlobalOffsetY() { return renderer.getOffsetY(); }
 
 
     public GamePanel() {
         setBackground(Color.BLACK);
         setFocusable(true);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                captureView();
+            }
+        });
     }
 
-    public void setControllers(GameController c1, GameController c2) {
-        this.controller1 = c1;
-        this.controller2 = c2;
+    /** Copy the size and display scale for the tick thread. Call on the EDT. */
+    private void captureView() {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        viewDeviceScale = gc != null ? gc.getDefaultTransform().getScaleX() : 1.0;
+        viewWidth = getWidth();
+        viewHeight = getHeight();
+    }
 
-        int totalCols = PREVIEW_COLS + GRID_COLS + GRID_COLS + PREVIEW_COLS;
-        int width     = totalCols * SmallBlock.SIZE;
-        int height    = GRID_ROWS * SmallBlock.SIZE;
-        setPreferredSize(new Dimension(width, height));
+    public void setMatch(Match match) {
+        this.match = match;
+        this.controllers = match.getControllers();
+        this.perfStats = new PerfStats(controllers.size());
+        this.perfHud = new PerfHud(perfStats);
+        if (hudVisible) match.setTickTimer(perfStats);
+        setPreferredSize(BoardLayout.of(controllers).getSize());
     }
 
-    // Allow power-ups to target all controllers.
-    public List<GameController> getControllers() {
-        // Java 9+: you could also use List.of(controller1, controller2);
-        return Arrays.asList(controller1, controller2);
+    /**
+     * Show or hide the performance overlay: paint time, each player's tick time, active
+     * gravity animations, repaints per second, allocation rate and GC pauses.
+     */
+    public void setHudVisible(boolean visible) {
+        hudVisible = visible;
+        if (match != null) match.setTickTimer(visible ? perfStats : null);
+        repaint();
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    public boolean isHudVisible() {
+        return hudVisible;
+    }
+
+    /**
+     * Copy the current game state into a snapshot and publish it, then repaint only the
+     * cells, previews, inventory slots and clock that differ from the last published frame.
+     * When nothing visible changed the frame is dropped and nothing is painted.
+     * Call this from the thread that mutates game state, in place of repaint().
+     */
+    public void publishFrame() {
+        if (controllers.isEmpty()) return;
+        FrameSnapshot snapshot = frames.beginWrite();
+        snapshot.capture(controllers, frames.getPublishedCount() + 1);
+        if (hudVisible) updateHud(snapshot);
+
+        boolean full = needsFullRepaint(snapshot);
+        if (!full && !findDirtyRegions(snapshot)) return;
+
+        lastPublished.copyFrom(snapshot);
+        frames.publish();
+
+        // only after publishing, so a region can't be painted from the previous frame and then forgotten
+        if (full) {
+            repaint();
+            return;
+        }
+        for (Rectangle r : dirty) {
+            if (!r.isEmpty()) {
+                repaint(r.x, r.y, r.width, r.height);
+            }
+        }
+    }
+
+    /** Record the gravity count, and redraw the overlay once per rate sample even if nothing else changes. */
+    private void updateHud(FrameSnapshot snapshot) {
+        int gravity = 0;
+        for (int p = 0; p < snapshot.getPlayerCount(); p++) {
+            if (snapshot.getPlayer(p).getGravityProgress() >= 0) gravity++;
+        }
+        perfStats.recordGravity(gravity);
+
+        long now = System.nanoTime();
+        if (now - lastHudRepaint >= PerfStats.SAMPLE_NANOS) {
+            lastHudRepaint = now;
+            repaint(hudX(), HUD_MARGIN, perfHud.getWidth(), perfHud.getHeight());
+        }
+    }
 
-        // shift everything by the current offsets
-        Graphics2D g2 = (Graphics2D) g;
-        g2.translate(globalOffsetX, globalOffsetY);
+    private int hudX() {
+        return Math.max(0, viewWidth - perfHud.getWidth() - HUD_MARGIN);
+    }
+
+    private boolean needsFullRepaint(FrameSnapshot snapshot) {
+        if (lastPublished.getFrameNumber() == 0
+                || lastPublished.getPlayerCount() != snapshot.getPlayerCount()) {
+            return true;
+        }
+        for (int p = 0; p < snapshot.getPlayerCount(); p++) {
+            FrameSnapshot.PlayerFrame before = lastPublished.getPlayer(p);
+            FrameSnapshot.PlayerFrame after  = snapshot.getPlayer(p);
+            if (before.getRows() != after.getRows() || before.getColumns() != after.getColumns()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Fill dirty with the panel regions that differ between lastPublished and snapshot. */
+    private boolean findDirtyRegions(FrameSnapshot snapshot) {
+        int width = viewWidth;
+        int players = snapshot.getPlayerCount();
+        if (layout == null || !layout.fits(snapshot)) {
+            layout = BoardLayout.of(snapshot);
+        }
+        viewScale = renderer.viewScale(layout, width, viewHeight, viewDeviceScale);
+
+        if (dirty.length != players * 3 + 1) {
+            dirty = new Rectangle[players * 3 + 1];
+            for (int i = 0; i < dirty.length; i++) {
+                dirty[i] = new Rectangle();
+            }
+        }
+        for (Rectangle r : dirty) {
+            r.setBounds(0, 0, 0, 0);
+        }
 
-        int secs = controller1.getElapsedSeconds();
-        String mmss = String.format("%02d:%02d", secs/60, secs%60);
-        if (controller1 == null || controller2 == null) return;
-
-        int pxPreview  = 0;
-        int pxGrid1    = pxPreview + PREVIEW_COLS * SmallBlock.SIZE;
-        int pxDivider  = pxGrid1   + GRID_COLS   * SmallBlock.SIZE;
-        int pxGrid2    = pxDivider;
-        int pxPreview2 = pxGrid2   + GRID_COLS   * SmallBlock.SIZE;
-
-        int rightOfGrids = pxPreview2 + PREVIEW_COLS * SmallBlock.SIZE + GAP;
-
-        g2.setColor(Color.WHITE);
-        g2.setFont(new Font("Arial", Font.BOLD, 18));
-        g2.drawString("Time: " + mmss, rightOfGrids, 20);
-
-        // Player 1 UI
-        drawPreview(controller1, g, pxPreview);
-        drawStoredPowerUps(controller1, g, pxPreview);
-        drawGrid(controller1.getGrid(), g, pxGrid1);
-        drawActive(controller1, g, pxGrid1);
-
-        // Divider
-        drawDivider(g, pxDivider);
-
-        // Player 2 UI
-        drawGrid(controller2.getGrid(), g, pxGrid2);
-        drawActive(controller2, g, pxGrid2);
-        drawPreview(controller2, g, pxPreview2);
-        drawStoredPowerUps(controller2, g, pxPreview2);
-    }
-
-    private void drawDivider(Graphics g, int x) {
-        Graphics2D g2      = (Graphics2D) g;
-        int height         = GRID_ROWS * SmallBlock.SIZE;
-        g2.setColor(Color.WHITE);
-        g2.setStroke(new BasicStroke(DIVIDER_STROKE));
-        g2.drawLine(x, 0, x, height);
-    }
-
-    private void drawPreview(GameController controller, Graphics g, int offsetX) {
-        GameGrid grid      = controller.getGrid();
-        int panelW         = SmallBlock.SIZE * PREVIEW_COLS;
-        int panelH         = grid.getRows() * SmallBlock.SIZE;
-
-        // background + border
-        g.setColor(Color.BLACK);
-        g.fillRect(offsetX, 0, panelW, panelH);
-        g.setColor(Color.WHITE);
-        g.drawRect(offsetX, 0, panelW - 1, panelH - 1);
-
-        Block next = controller.getNextBlock();
-        if (next == null) return;
-
-        int[][]     shape = next.getPositions();
-        SmallBlock[] cells = next.getSmallBlocks();
-        int baseX       = offsetX + (panelW - SmallBlock.SIZE) / 2;
-        int baseY       = (PREVIEW_COLS * SmallBlock.SIZE - SmallBlock.SIZE * cells.length) / 2;
-
-        for (int i = 0; i < cells.length; i++) {
-            int px = baseX + shape[i][1] * SmallBlock.SIZE;
-            int py = baseY + shape[i][0] * SmallBlock.SIZE;
-            drawSmallBlock(g, cells[i], px, py);
-        }
-    }
-
-    private void drawStoredPowerUps(GameController controller, Graphics g, int offsetX) {
-        GameGrid grid      = controller.getGrid();
-        PowerUpInventory inv = controller.getPowerUpInventory();
-        List<PowerUpBlock> stored = inv.getStored();
-
-        int panelW = SmallBlock.SIZE * PREVIEW_COLS;
-        int invX    = offsetX;
-        int invY    = SmallBlock.SIZE * PREVIEW_COLS + SPACING_Y;
-        int invH    = grid.getRows() * SmallBlock.SIZE - invY;
-
-        // background + border aligned to bottom of grid
-        g.setColor(Color.BLACK);
-        g.fillRect(invX, invY, panelW, invH);
-        g.setColor(Color.WHITE);
-        g.drawRect(invX, invY, panelW - 1, invH - 1);
-
-        g.drawString("Power-Ups", invX + GAP, invY + GAP + g.getFontMetrics().getAscent());
-
-        for (int i = 0; i < stored.size(); i++) {
-            PowerUpBlock pu = stored.get(i);
-            BufferedImage img = pu.getSprite();
-            int x = invX + (panelW - SmallBlock.SIZE) / 2;
-            int y = invY + GAP + (i + 1) * (SmallBlock.SIZE + GAP);
-            g.drawImage(img, x, y, SmallBlock.SIZE, SmallBlock.SIZE, null);
-        }
-    }
-
-    private void drawGrid(GameGrid grid, Graphics g, int offsetX) {
-        for (int r = 0; r < grid.getRows(); r++) {
-            for (int c = 0; c < grid.getColumns(); c++) {
-                int x = offsetX + c * SmallBlock.SIZE;
-                int y = r * SmallBlock.SIZE;
-                SmallBlock cell = grid.getCell(r, c);
-                if (cell != null) drawSmallBlock(g, cell, x, y);
-                else {
-                    g.setColor(Color.GRAY);
-                    g.drawRect(x, y, SmallBlock.SIZE, SmallBlock.SIZE);
+        // power-up sprites animate on their own clock, so their cells are dirty on every frame step
+        boolean animated = false;
+        for (int p = 0; p < players && !animated; p++) {
+            animated = showsPowerUp(snapshot.getPlayer(p));
+        }
+        boolean animationStepped = false;
+        if (animated) {
+            int frame = SpriteAtlas.getAnimationFrame();
+            animationStepped = frame != lastAnimationFrame;
+            lastAnimationFrame = frame;
+        }
+
+        boolean any = false;
+        for (int p = 0; p < players; p++) {
+            FrameSnapshot.PlayerFrame before = lastPublished.getPlayer(p);
+            FrameSnapshot.PlayerFrame after  = snapshot.getPlayer(p);
+            int gridX = layout.getGridX(p), gridY = layout.getGridY(p);
+            int previewX = layout.getPreviewX(p), previewY = layout.getPreviewY(p);
+            any |= diffGrid(before, after, animationStepped, gridX, gridY, dirty[p * 3]);
+            any |= diffPreview(before, after, animationStepped, previewX, previewY, dirty[p * 3 + 1]);
+            any |= diffInventory(before, after, animationStepped, previewX, previewY, dirty[p * 3 + 2]);
+        }
+
+        if (snapshot.getElapsedSeconds() != lastPublished.getElapsedSeconds()) {
+            Rectangle clock = dirty[players * 3];
+            toPanel(clock, layout.getClockX(), 0, SmallBlock.SIZE, SmallBlock.SIZE);
+            clock.setBounds(clock.x, 0, Math.max(0, width - clock.x), clock.y + clock.height);
+            any = true;
+        }
+        return any;
+    }
+
+    private boolean diffGrid(FrameSnapshot.PlayerFrame before, FrameSnapshot.PlayerFrame after,
+                             boolean animationStepped, int offsetX, int offsetY, Rectangle region) {
+        boolean changed = false;
+        for (int r = 0; r < after.getRows(); r++) {
+            for (int c = 0; c < after.getColumns(); c++) {
+                byte code = after.getCell(r, c);
+                if (code != before.getCell(r, c) || (animationStepped && isPowerUp(code))) {
+                    addCell(region, offsetX + c * SmallBlock.SIZE, offsetY + r * SmallBlock.SIZE);
+                    changed = true;
                 }
             }
         }
+
+        // a moved piece dirties both where it was and where it is now
+        boolean pieceChanged = before.getActiveCount() != after.getActiveCount();
+        for (int i = 0; i < after.getActiveCount() && !pieceChanged; i++) {
+            pieceChanged = before.getActiveCode(i) != after.getActiveCode(i)
+                    || before.getActiveRow(i) != after.getActiveRow(i)
+                    || before.getActiveColumn(i) != after.getActiveColumn(i)
+                    || (animationStepped && isPowerUp(after.getActiveCode(i)));
+        }
+        if (pieceChanged) {
+            for (int i = 0; i < before.getActiveCount(); i++) {
+                addCell(region, offsetX + before.getActiveColumn(i) * SmallBlock.SIZE,
+                        offsetY + before.getActiveRow(i) * SmallBlock.SIZE);
+            }
+            for (int i = 0; i < after.getActiveCount(); i++) {
+                addCell(region, offsetX + after.getActiveColumn(i) * SmallBlock.SIZE,
+                        offsetY + after.getActiveRow(i) * SmallBlock.SIZE);
+            }
+            changed = true;
+        }
+        return changed;
+    }
+
+    private boolean diffPreview(FrameSnapshot.PlayerFrame before, FrameSnapshot.PlayerFrame after,
+                                boolean animationStepped, int offsetX, int offsetY, Rectangle region) {
+        boolean changed = before.getNextCount() != after.getNextCount();
+        for (int i = 0; i < after.getNextCount() && !changed; i++) {
+            changed = before.getNextCode(i) != after.getNextCode(i)
+                    || before.getNextRow(i) != after.getNextRow(i)
+                    || before.getNextColumn(i) != after.getNextColumn(i)
+                    || (animationStepped && isPowerUp(after.getNextCode(i)));
+        }
+        if (changed) {
+            int size = SmallBlock.SIZE * FrameRenderer.PREVIEW_COLS;
+            toPanel(region, offsetX, offsetY, size, size);
+        }
+        return changed;
+    }
+
+    private boolean diffInventory(FrameSnapshot.PlayerFrame before, FrameSnapshot.PlayerFrame after,
+                                  boolean animationStepped, int offsetX, int offsetY, Rectangle region) {
+        boolean changed = false;
+        int slots = Math.max(before.getStoredCount(), after.getStoredCount());
+        for (int i = 0; i < slots; i++) {
+            boolean slotChanged = i >= before.getStoredCount() || i >= after.getStoredCount()
+                    || before.getStoredCode(i) != after.getStoredCode(i)
+                    || (animationStepped && isPowerUp(after.getStoredCode(i)));
+            if (slotChanged) {
+                addCell(region, FrameRenderer.storedX(offsetX), offsetY + FrameRenderer.storedY(i));
+                changed = true;
+            }
+        }
+        return changed;
     }
 
-    private void drawActive(GameController controller, Graphics g, int offsetX) {
-        Block active = controller.getCurrentBlock();
-        if (active == null) return;
-        int[][] shape = active.getPositions();
-        SmallBlock[] cells = active.getSmallBlocks();
-        for (int i = 0; i < cells.length; i++) {
-            int x = offsetX + (active.getX() + shape[i][1]) * SmallBlock.SIZE;
-            int y = (active.getY() + shape[i][0]) * SmallBlock.SIZE;
-            drawSmallBlock(g, cells[i], x, y);
+    /** Grow region (panel coordinates) to cover the cell at x, y (board coordinates). */
+    private void addCell(Rectangle region, int x, int y) {
+        if (region.isEmpty()) {
+            toPanel(region, x, y, SmallBlock.SIZE, SmallBlock.SIZE);
+        } else {
+            region.add(toPanelX(x), toPanelY(y));
+            region.add(toPanelX(x + SmallBlock.SIZE) + EDGE, toPanelY(y + SmallBlock.SIZE) + EDGE);
         }
     }
 
-    private void drawSmallBlock(Graphics g, SmallBlock cell, int x, int y) {
-        g.drawImage(
-                cell.getSprite(), x, y,
-                cell.getSize(), cell.getSize(),
-                null
-        );
+    /** Set r to a board-space rectangle in panel coordinates, widened to cover sprite rounding. */
+    private void toPanel(Rectangle r, int x, int y, int w, int h) {
+        int left = toPanelX(x);
+        int top  = toPanelY(y);
+        r.setBounds(left, top, toPanelX(x + w) + EDGE - left, toPanelY(y + h) + EDGE - top);
+    }
+
+    private int toPanelX(int x) {
+        return renderer.getOffsetX() + (int) Math.floor(x * viewScale) - 1;
+    }
+
+    private int toPanelY(int y) {
+        return renderer.getOffsetY() + (int) Math.floor(y * viewScale) - 1;
+    }
+
+    private static boolean showsPowerUp(FrameSnapshot.PlayerFrame player) {
+        for (int r = 0; r < player.getRows(); r++) {
+            for (int c = 0; c < player.getColumns(); c++) {
+                if (isPowerUp(player.getCell(r, c))) return true;
+            }
+        }
+        for (int i = 0; i < player.getActiveCount(); i++) {
+            if (isPowerUp(player.getActiveCode(i))) return true;
+        }
+        for (int i = 0; i < player.getNextCount(); i++) {
+            if (isPowerUp(player.getNextCode(i))) return true;
+        }
+        return player.getStoredCount() > 0;
+    }
+
+    private static boolean isPowerUp(byte code) {
+        return CellCode.kind(code) == CellCode.KIND_POWER_UP;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        captureView();
+        FrameSnapshot frame = frames.acquire();
+        if (frame.getFrameNumber() == 0 || frame.getPlayerCount() == 0) {
+            super.paintComponent(g);
+            return;
+        }
+        renderer.setBackground(getBackground());
+        if (!hudVisible) {
+            renderer.paint((Graphics2D) g, frame, getWidth(), getHeight(), getGraphicsConfiguration());
+            return;
+        }
+
+        long start = System.nanoTime();
+        renderer.paint((Graphics2D) g, frame, getWidth(), getHeight(), getGraphicsConfiguration());
+        long end = System.nanoTime();
+        perfStats.recordPaint(end - start);
+        perfStats.sample(end);
+        if (g.hitClip(hudX(), HUD_MARGIN, perfHud.getWidth(), perfHud.getHeight())) {
+            perfHud.paint((Graphics2D) g, hudX(), HUD_MARGIN);
+        }
     }
 }
\ No newline at end of file
@@ -5,7 +5,7 @@ import java.awt.event.KeyListener;
 
 public class InputHandler implements KeyListener {
     private final GameController controller;
-    private final int leftKey, rightKey, dropKey, powerUpKey, cycleKey;
+    private final int leftKey, rightKey, dropKey, powerUpKey, cycleKey, softDropKey;
 
     public InputHandler(
             GameController controller,
@@ -13,7 +13,8 @@ public class InputHandler implements KeyListener {
             int rightKey,
             int dropKey,
             int powerUpKey,
-            int cycleKey
+            int cycleKey,
+            int softDropKey
     ) {
         this.controller = controller;
         this.leftKey    = leftKey;
@@ -21,18 +22,26 @@ public class InputHandler implements KeyListener {
         this.dropKey    = dropKey;
         this.powerUpKey = powerUpKey;
         this.cycleKey   = cycleKey;
+        this.softDropKey = softDropKey;
     }
 
     @Override
     public void keyPressed(KeyEvent e) {
         int code = e.getKeyCode();
-        if      (code == leftKey)    controller.moveBlockLeft();
-        else if (code == rightKey)   controller.moveBlockRight();
-        else if (code == dropKey)    controller.drop();
-        else if (code == powerUpKey) controller.activatePowerUp();
-        else if (code == cycleKey)   controller.getCurrentBlock().cycleColors();
+        if      (code == leftKey)    controller.submit(PlayerAction.MOVE_LEFT);
+        else if (code == rightKey)   controller.submit(PlayerAction.MOVE_RIGHT);
+        else if (code == dropKey)    controller.submit(PlayerAction.DROP);
+        else if (code == powerUpKey) controller.submit(PlayerAction.POWER_UP);
+        else if (code == cycleKey)   controller.submit(PlayerAction.CYCLE);
+
+        // soft drop is held, so it is checked separately and may share a key with a tap action
+        if (code == softDropKey)     controller.submit(PlayerAction.SOFT_DROP_ON);
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        if (e.getKeyCode() == softDropKey) controller.submit(PlayerAction.SOFT_DROP_OFF);
     }
 
-    @Override public void keyReleased(KeyEvent e) {}
     @Override public void keyTyped(KeyEvent e)    {}
 }
@@ -2,17 +2,25 @@ package Burner;
 
 import Block.*;
 import javax.swing.*;
+import javax.imageio.ImageIO;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import java.awt.*;
 import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class Main {
 
     private JFrame frame;
     private GamePanel panel;
-    private GameController controller1;
-    private GameController controller2;
+    private GameCanvas canvas;
+    private Match match;
+    private TickScheduler scheduler;
+    private JFrame gameOverFrame;
 
     public Main() {
         frame = new JFrame("Block Burner - 2 Player");
@@ -28,69 +36,141 @@ public class Main {
     }
 
     private void startGame() {
-        // Initialize game grids and factories
-        GameGrid grid1 = new GameGrid(18, 6);
-        GameGrid grid2 = new GameGrid(18, 6);
-        BlockFactory factory = new BlockFactory();
-
-        // Set up game panel
-        panel = new GamePanel();
-        panel.setBackground(Color.BLACK);
-
-        // Create controllers
-        controller1 = new GameController(
-                grid1, factory,
-                panel::repaint,
-                panel,
-                new GameLogic(grid1)
-        );
-        controller2 = new GameController(
-                grid2, factory,
-                panel::repaint,
-                panel,
-                new GameLogic(grid2)
-        );
-        panel.setControllers(controller1, controller2);
-
-        // Input mappings
-        panel.addKeyListener(new InputHandler(
+        // Initialize the match: two 18x6 grids, each player with its own seeded streams
+        match = Match.create(2, System.nanoTime());
+        // Record the match only with -Dblockburner.saveReplays=<dir>
+        String replayDir = System.getProperty("blockburner.saveReplays");
+        ReplayRecorder recorder = replayDir == null ? null : ReplayRecorder.attach(match);
+        match.setGameOverListener((m, loser) -> {
+            if (recorder != null) {
+                // the file is written off the tick thread
+                Replay replay = recorder.finish();
+                new Thread(() -> saveReplay(replay, Paths.get(replayDir)), "replay-saver").start();
+            }
+            SwingUtilities.invokeLater(this::showGameOver);
+        });
+        GameController controller1 = match.getController(0);
+        GameController controller2 = match.getController(1);
+
+        // Set up the game view: Swing-painted panel, or with -Dblockburner.activeRender=true
+        // a canvas redrawn at the display refresh rate with smooth falling motion
+        Component view;
+        Runnable publishFrame;
+        if (Boolean.getBoolean("blockburner.activeRender")) {
+            canvas = new GameCanvas();
+            canvas.setMatch(match);
+            view = canvas;
+            publishFrame = canvas::publishFrame;
+            // menus must be heavyweight to show above a Canvas
+            JPopupMenu.setDefaultLightWeightPopupEnabled(false);
+        } else {
+            panel = new GamePanel();
+            panel.setBackground(Color.BLACK);
+            panel.setMatch(match);
+            view = panel;
+            publishFrame = panel::publishFrame;
+        }
+
+        // Input mappings (holding DOWN soft-drops both players)
+        view.addKeyListener(new InputHandler(
                 controller2,
                 KeyEvent.VK_LEFT,
                 KeyEvent.VK_RIGHT,
                 KeyEvent.VK_DOWN,
                 KeyEvent.VK_SPACE,
-                KeyEvent.VK_UP
+                KeyEvent.VK_UP,
+                KeyEvent.VK_DOWN
         ));
-        panel.addKeyListener(new InputHandler(
+        view.addKeyListener(new InputHandler(
                 controller1,
                 KeyEvent.VK_A,
                 KeyEvent.VK_D,
                 KeyEvent.VK_S,
                 KeyEvent.VK_Q,
-                KeyEvent.VK_W
+                KeyEvent.VK_W,
+                KeyEvent.VK_DOWN
         ));
 
         // Settings menu
         JMenuBar menuBar = new JMenuBar();
         JMenu settingsMenu = new JMenu("Settings");
 
+        // Performance overlay (F3); only the Swing-painted panel has one
+        JCheckBoxMenuItem hudItem = new JCheckBoxMenuItem("Performance HUD");
+        hudItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0));
+        hudItem.setEnabled(panel != null);
+        hudItem.addActionListener(e -> panel.setHudVisible(hudItem.isSelected()));
+        settingsMenu.add(hudItem);
+
         menuBar.add(settingsMenu);
         frame.setJMenuBar(menuBar);
 
-        // Switch to game panel
-        frame.setContentPane(panel);
+        // Switch to game view
+        JPanel content = new JPanel(new BorderLayout());
+        content.setBackground(Color.BLACK);
+        content.add(view, BorderLayout.CENTER);
+        frame.setContentPane(content);
         frame.revalidate();
         frame.pack();
         frame.setExtendedState(JFrame.MAXIMIZED_BOTH);
         frame.setLocationRelativeTo(null);
-        panel.requestFocusInWindow();
+        view.requestFocusInWindow();
+
+        // Start the shared game loop
+        match.start();
+        scheduler = new TickScheduler(match, publishFrame);
+        scheduler.start();
+        if (canvas != null) {
+            canvas.start();
+        }
+    }
+
+    /** Keep the finished match as <dir>/<seed>.bbr; replay it with ReplayEngine. */
+    private static void saveReplay(Replay replay, Path dir) {
+        try {
+            Files.createDirectories(dir);
+            replay.write(dir.resolve(Long.toHexString(replay.getSeed()) + ".bbr"));
+        } catch (IOException e) {
+            System.err.println("Failed to save replay: " + e.getMessage());
+        }
+    }
+
+    /** Show game-over dialog and offer exit. */
+    private void showGameOver() {
+        // If somehow a frame already exists and is visible, bail out
+        if (gameOverFrame != null && gameOverFrame.isShowing()) {
+            return;
+        }
+        gameOverFrame = new JFrame("Game Over");
+        gameOverFrame.setSize(800, 1050);
+        gameOverFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        try {
+            BufferedImage bgImg = ImageIO.read(
+                    getClass().getResource("/sprites/endscreen.png")
+            );
+            JLabel background = new JLabel(new ImageIcon(bgImg));
+            background.setLayout(new FlowLayout(FlowLayout.CENTER, 20, 20));
+            JButton exitBtn = new JButton("Exit");
+            exitBtn.addActionListener(e -> System.exit(0));
+            background.add(exitBtn);
+            gameOverFrame.setContentPane(background);
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            JPanel fallback = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 20));
+            fallback.add(new JLabel("Game Over!"));
+            JButton exitBtn = new JButton("Exit");
+            exitBtn.addActionListener(e -> System.exit(0));
+            fallback.add(exitBtn);
+            gameOverFrame.setContentPane(fallback);
+        }
 
-        // Start game loops
-        controller1.startGame();
-        controller2.startGame();
+        gameOverFrame.setLocationRelativeTo(null);
+        gameOverFrame.setVisible(true);
     }
 
     public static void main(String[] args) {
+        // decode the sprite sheets while the start menu comes up
+        SpriteAtlas.preload();
         SwingUtilities.invokeLater(Main::new);
     }
 }
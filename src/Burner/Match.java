@@ -0,0 +1,187 @@
+package Burner;
+
+import Block.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * One match: the players' controllers, the shared tick counter and the game-over state.
+ *
+ * This is the headless engine API. Nothing here (or in GameController, GameLogic, GameGrid
+ * and the Block rules) touches AWT, Swing or sprites, so a match can be stepped tick by tick
+ * on a server or in a test: submit inputs, call step(), read the grids back.
+ *
+ * All randomness comes from the match seed. It seeds one root SplittableRandom, which is
+ * split once per player in seat order; each player's stream is split again into a piece
+ * stream (their BlockFactory) and an effect stream (their GameLogic: power-ups and penalty
+ * blocks). No stream is shared, so the same seed and inputs replay a match bit for bit, and
+ * matches running in parallel never contend on a Random.
+ */
+public class Match {
+
+    public interface GameOverListener {
+        /** Called once, on the tick thread, at the end of the step in which a grid reached the top row. */
+        void onGameOver(Match match, GameController loser);
+    }
+
+    public interface InputListener {
+        /** Called on the tick thread as each queued input is applied, e.g. by a ReplayRecorder. */
+        void onInput(long tick, int player, PlayerAction action);
+    }
+
+    public interface TickTimer {
+        /** Called on the tick thread after each controller's tick with how long it took. */
+        void onControllerTick(int player, long nanos);
+    }
+
+    // grid sizes create() accepts: pieces are three cells tall, penalty blocks need two distinct
+    // columns, and replays and the match server store both sizes in a byte
+    public static final int MIN_ROWS = 3;
+    public static final int MIN_COLUMNS = 2;
+    public static final int MAX_GRID_SIZE = 255;
+
+    private final List<GameController> controllers;
+    private GameOverListener gameOverListener;
+    private InputListener inputListener;
+    // set from the UI thread while the tick thread runs
+    private volatile TickTimer tickTimer;
+    private GameController loser;
+    private boolean over;
+    private long tick;
+    private final long seed;
+
+    public Match(List<GameController> controllers) {
+        this(controllers, 0L);
+    }
+
+    private Match(List<GameController> controllers, long seed) {
+        this.seed = seed;
+        this.controllers = List.copyOf(controllers);
+        int players = this.controllers.size();
+        for (int i = 0; i < players; i++) {
+            this.controllers.get(i).setMatch(this, i);
+        }
+        // each player's opponents, built once so effects never filter the whole list per event
+        for (int i = 0; i < players; i++) {
+            GameController[] opponents = new GameController[players - 1];
+            for (int j = 0, k = 0; j < players; j++) {
+                if (j != i) opponents[k++] = this.controllers.get(j);
+            }
+            this.controllers.get(i).setOpponents(opponents);
+        }
+    }
+
+    /** A match of standard 18x6 grids. */
+    public static Match create(int players, long seed) {
+        return create(players, 18, 6, seed);
+    }
+
+    /**
+     * A match of rows x columns grids, MIN_ROWS to MAX_GRID_SIZE rows and MIN_COLUMNS to
+     * MAX_GRID_SIZE columns.
+     */
+    public static Match create(int players, int rows, int columns, long seed) {
+        if (rows < MIN_ROWS || rows > MAX_GRID_SIZE || columns < MIN_COLUMNS || columns > MAX_GRID_SIZE) {
+            throw new IllegalArgumentException("Unsupported grid size " + rows + "x" + columns + ": rows "
+                    + MIN_ROWS + " to " + MAX_GRID_SIZE + ", columns " + MIN_COLUMNS + " to " + MAX_GRID_SIZE);
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        List<GameController> list = new ArrayList<>(players);
+        for (int i = 0; i < players; i++) {
+            SplittableRandom player = root.split();
+            GameGrid grid = new GameGrid(rows, columns);
+            BlockFactory pieces = new BlockFactory(player.split());
+            GameLogic logic = new GameLogic(grid, player.split());
+            list.add(new GameController(grid, pieces, logic));
+        }
+        return new Match(list, seed);
+    }
+
+    public void setGameOverListener(GameOverListener listener) {
+        this.gameOverListener = listener;
+    }
+
+    public void setInputListener(InputListener listener) {
+        this.inputListener = listener;
+    }
+
+    /** Time every controller's tick from now on, or stop timing with null. */
+    public void setTickTimer(TickTimer timer) {
+        this.tickTimer = timer;
+    }
+
+    /** Settle gravity and cascades instantly for every player, see GameLogic.setInstantGravity. */
+    public void setInstantGravity(boolean instant) {
+        for (GameController controller : controllers) {
+            controller.getGameLogic().setInstantGravity(instant);
+        }
+    }
+
+    public boolean isInstantGravity() {
+        return controllers.get(0).getGameLogic().isInstantGravity();
+    }
+
+    /** Spawn every player's first piece. */
+    public void start() {
+        for (GameController controller : controllers) {
+            controller.startGame();
+        }
+    }
+
+    /** Queue an input for a player; it is applied at the start of the next step. */
+    public void submit(int player, PlayerAction action) {
+        controllers.get(player).submit(action);
+    }
+
+    /** Advance every player by one tick, in player order. Does nothing once the match is over. */
+    public void step() {
+        if (over) return;
+        TickTimer timer = tickTimer;
+        for (int i = 0; i < controllers.size(); i++) {
+            if (timer == null) {
+                controllers.get(i).tick();
+            } else {
+                long start = System.nanoTime();
+                controllers.get(i).tick();
+                timer.onControllerTick(i, System.nanoTime() - start);
+            }
+        }
+        tick++;
+        if (over && gameOverListener != null) {
+            gameOverListener.onGameOver(this, loser);
+        }
+    }
+
+    /** Step until the match ends or maxTicks have run; returns the ticks actually run. */
+    public long run(long maxTicks) {
+        long start = tick;
+        while (!over && tick - start < maxTicks) {
+            step();
+        }
+        return tick - start;
+    }
+
+    void inputApplied(int player, PlayerAction action) {
+        if (inputListener != null) {
+            inputListener.onInput(tick, player, action);
+        }
+    }
+
+    void declareGameOver(GameController loser) {
+        if (over) return;
+        over = true;
+        this.loser = loser;
+    }
+
+    public boolean isOver()                    { return over; }
+    /** The player whose grid overflowed, or null while the match is running. */
+    public GameController getLoser()           { return loser; }
+    public long getTick()                      { return tick; }
+    /** The seed passed to create(), or 0 for a match built from ready-made controllers. */
+    public long getSeed()                      { return seed; }
+    public int getPlayerCount()                { return controllers.size(); }
+    public GameController getController(int i) { return controllers.get(i); }
+    public List<GameController> getControllers() { return controllers; }
+}
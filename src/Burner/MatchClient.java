@@ -0,0 +1,381 @@
+package Burner;
+
+import Block.Zobrist;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Load and conformance client for MatchServer: opens many bot connections from one thread.
+ *
+ * Each connection mirrors its match from the seed in START and the inputs in each TICK,
+ * lets a bot choose its next input from the mirror and sends it. When END arrives the
+ * mirror's tick count and state hashes are checked against the server's, so a run shows
+ * both how many matches a server keeps at 60 Hz and that the clients could follow them.
+ * If the server sends StateSync state, each connection also decodes it and checks the decoded
+ * state against its mirror after every tick, starting from the first keyframe it reads.
+ */
+public class MatchClient implements AutoCloseable {
+    private final Selector selector;
+    private final Bot.Factory bots;
+    private final List<Player> players = new ArrayList<>();
+    private final ByteBuffer action = ByteBuffer.allocate(1);
+
+    private int open;
+    private int verified, diverged;
+    private long ticks, inputs, droppedInputs;
+    private long maxTickGap;
+    private long lateTicks;
+    private long stateChecks, stateMismatches;
+    private long stateMessages, stateBytes, keyframes, keyframeBytes;
+
+    public MatchClient(Bot.Factory bots) throws IOException {
+        this.selector = Selector.open();
+        this.bots = bots;
+    }
+
+    /** Ignore state sync until this tick of each match, as a client joining late would. */
+    public void setLateTicks(long ticks) {
+        this.lateTicks = ticks;
+    }
+
+    /** Start connecting count more players to the server. */
+    public void connect(InetSocketAddress address, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            Player player = new Player(channel);
+            players.add(player);
+            open++;
+            if (channel.connect(address)) {
+                channel.register(selector, SelectionKey.OP_READ, player);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, player);
+            }
+        }
+    }
+
+    /** Handle traffic until every connection has closed or timeoutNanos pass; false on timeout. */
+    public boolean run(long timeoutNanos) throws IOException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (open > 0) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) return false;
+            selector.select(Math.max(1, left / 1_000_000));
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Player player = (Player) key.attachment();
+                try {
+                    if (key.isConnectable()) {
+                        player.channel.finishConnect();
+                        key.interestOps(SelectionKey.OP_READ);
+                    } else if (key.isReadable()) {
+                        read(player);
+                    }
+                } catch (IOException e) {
+                    close(player);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void read(Player player) throws IOException {
+        if (player.in.remaining() == 0) {
+            ByteBuffer bigger = ByteBuffer.allocate(player.in.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+            player.in.flip();
+            player.in = bigger.put(player.in);
+        }
+        if (player.channel.read(player.in) < 0) {
+            close(player);
+            return;
+        }
+        ByteBuffer in = player.in;
+        in.flip();
+        int length;
+        while ((length = messageLength(in, player.count)) > 0) {
+            int end = in.position() + length;
+            handle(player, in);
+            in.position(end);
+        }
+        in.compact();
+    }
+
+    private void handle(Player player, ByteBuffer in) throws IOException {
+        int start = in.position();
+        byte type = in.get();
+        if (type == MatchServer.MSG_START) {
+            player.seat = in.get();
+            player.count = in.get();
+            int rows = in.get(), columns = in.get(), flags = in.get();
+            long seed = in.getLong();
+            player.mirror = Match.create(player.count, rows, columns, seed);
+            player.mirror.setInstantGravity((flags & Replay.FLAG_INSTANT_GRAVITY) != 0);
+            player.mirror.start();
+            player.bot = bots.create(Zobrist.mix(seed + player.seat + 1));
+            player.sync = new StateSync.Decoder(player.count, rows, columns);
+            player.lastTick = System.nanoTime();
+            act(player);
+        } else if (type == MatchServer.MSG_TICK) {
+            long count = MatchServer.getVarint(in);
+            for (long i = 0; i < count; i++) {
+                long event = MatchServer.getVarint(in);
+                player.mirror.submit((int) (event >>> Replay.ACTION_BITS),
+                        PlayerAction.fromOrdinal((int) (event & ((1 << Replay.ACTION_BITS) - 1))));
+            }
+            player.mirror.step();
+            ticks++;
+            long now = System.nanoTime();
+            maxTickGap = Math.max(maxTickGap, now - player.lastTick);
+            player.lastTick = now;
+            act(player);
+        } else if (type == MatchServer.MSG_END) {
+            int loser = in.get() & 0xFF;
+            long endTick = MatchServer.getVarint(in);
+            boolean same = player.mirror.getTick() == endTick
+                    && loser == (player.mirror.getLoser() == null ? MatchServer.NO_LOSER
+                                                                  : player.mirror.getLoser().getPlayerIndex());
+            for (int p = 0; p < player.count; p++) {
+                same &= in.getLong() == player.mirror.getController(p).getStateHash();
+            }
+            if (same) verified++;
+            else diverged++;
+            player.mirror = null;
+        } else if (type == MatchServer.MSG_STATE || type == MatchServer.MSG_KEY) {
+            int length = (int) MatchServer.getVarint(in);
+            boolean keyframe = type == MatchServer.MSG_KEY;
+            stateMessages++;
+            stateBytes += in.position() - start + length;
+            if (keyframe) {
+                keyframes++;
+                keyframeBytes += in.position() - start + length;
+            }
+            if (player.mirror.getTick() < lateTicks) return;
+            int limit = in.limit();
+            in.limit(in.position() + length);
+            boolean synced = player.sync.decode(in, keyframe);
+            in.limit(limit);
+            if (synced) {
+                stateChecks++;
+                for (int p = 0; p < player.count; p++) {
+                    if (player.sync.getPlayer(p).getStateHash() != player.mirror.getController(p).getStateHash()) {
+                        stateMismatches++;
+                        break;
+                    }
+                }
+            }
+        } else {
+            throw new IOException("Unknown message type " + type);
+        }
+    }
+
+    private void act(Player player) throws IOException {
+        PlayerAction next = player.bot.nextAction(player.mirror, player.seat);
+        if (next == null) return;
+        action.clear();
+        action.put((byte) next.ordinal()).flip();
+        // a full socket buffer loses the input, as a congested link would
+        if (player.channel.write(action) == 0) droppedInputs++;
+        else inputs++;
+    }
+
+    /** Length of the complete message at in's position, or -1 if more bytes are needed. */
+    private static int messageLength(ByteBuffer in, int players) {
+        int at = in.position();
+        if (at >= in.limit()) return -1;
+        switch (in.get(at)) {
+            case MatchServer.MSG_START:
+                return in.remaining() >= 14 ? 14 : -1;
+            case MatchServer.MSG_TICK: {
+                int next = at + 1;
+                long count = 0;
+                byte b;
+                for (int shift = 0; ; shift += 7) {
+                    if (next >= in.limit()) return -1;
+                    b = in.get(next++);
+                    count |= (long) (b & 0x7F) << shift;
+                    if (b >= 0) break;
+                }
+                for (long i = 0; i < count && next >= 0; i++) {
+                    next = varintEnd(in, next);
+                }
+                return next < 0 ? -1 : next - at;
+            }
+            case MatchServer.MSG_STATE:
+            case MatchServer.MSG_KEY: {
+                int next = varintEnd(in, at + 1);
+                if (next < 0) return -1;
+                int length = (int) varintAt(in, at + 1);
+                return next + length > in.limit() ? -1 : next + length - at;
+            }
+            case MatchServer.MSG_END: {
+                int next = varintEnd(in, at + 2);
+                if (next < 0 || next + 8 * players > in.limit()) return -1;
+                return next + 8 * players - at;
+            }
+            default:
+                return 1; // handle() rejects it
+        }
+    }
+
+    /** The complete varint starting at, without moving in's position. */
+    private static long varintAt(ByteBuffer in, int at) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get(at++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    /** Index just past the varint starting at, or -1 if it runs past the limit. */
+    private static int varintEnd(ByteBuffer in, int at) {
+        while (at < in.limit()) {
+            if (in.get(at++) >= 0) return at;
+        }
+        return -1;
+    }
+
+    private void close(Player player) {
+        if (!player.channel.isOpen()) return;
+        try {
+            player.channel.close();
+        } catch (IOException ignored) {
+        }
+        open--;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Player player : players) {
+            close(player);
+        }
+        selector.close();
+    }
+
+    /** Matches still being played when the client stopped. */
+    public int getUnfinished() {
+        int unfinished = 0;
+        for (Player player : players) {
+            if (player.mirror != null) unfinished++;
+        }
+        return unfinished;
+    }
+
+    public int getVerified()         { return verified; }
+    public int getDiverged()         { return diverged; }
+    /** TICK messages received, over all connections. */
+    public long getTicks()           { return ticks; }
+    public long getInputs()          { return inputs; }
+    public long getDroppedInputs()   { return droppedInputs; }
+    /** Longest wait between two TICKs on one connection. */
+    public long getMaxTickGapNanos() { return maxTickGap; }
+    /** Ticks at which decoded state was compared with the mirror, and how many differed. */
+    public long getStateChecks()     { return stateChecks; }
+    public long getStateMismatches() { return stateMismatches; }
+    /** STATE and KEY messages received and their size with headers, keyframes alone too. */
+    public long getStateMessages()   { return stateMessages; }
+    public long getStateBytes()      { return stateBytes; }
+    public long getKeyframes()       { return keyframes; }
+    public long getKeyframeBytes()   { return keyframeBytes; }
+
+    /** One connection, its mirror of the match and the bot playing it. */
+    private static final class Player {
+        final SocketChannel channel;
+        ByteBuffer in = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        Match mirror;
+        StateSync.Decoder sync;
+        Bot bot;
+        int seat;
+        int count;
+        long lastTick;
+
+        Player(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Usage: MatchClient [-host h] [-port n] [-clients n] [-seconds n] [-bot stacking|random]
+     *                    [-late ticks] [-local players] [-loops n] [-instant] [-sync]
+     * Connects clients bot players and reports once every match has ended or the time is up.
+     * With -local, first starts a MatchServer for matches of that many players on a free
+     * loopback port in this JVM and connects to it, with state sync if -sync is given.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        String host = null;
+        int port = MatchServer.DEFAULT_PORT, clients = 200, seconds = 60, local = 0, loops = 2;
+        boolean instant = false, sync = false;
+        long late = 0;
+        Bot.Factory bots = StackingBot::new;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-host":    host = args[++i]; break;
+                case "-port":    port = Integer.parseInt(args[++i]); break;
+                case "-clients": clients = Integer.parseInt(args[++i]); break;
+                case "-seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "-bot":     bots = args[++i].equals("random") ? RandomBot::new : StackingBot::new; break;
+                case "-local":   local = Integer.parseInt(args[++i]); break;
+                case "-loops":   loops = Integer.parseInt(args[++i]); break;
+                case "-late":    late = Long.parseLong(args[++i]); break;
+                case "-instant": instant = true; break;
+                case "-sync":    sync = true; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        MatchServer server = null;
+        InetSocketAddress address = host == null
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port) : new InetSocketAddress(host, port);
+        if (local > 0) {
+            server = new MatchServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), local, loops,
+                    1L, BatchRunner.DEFAULT_MAX_TICKS);
+            server.setInstantGravity(instant);
+            server.setStateSync(sync);
+            server.start();
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+        }
+        try (MatchClient client = new MatchClient(bots)) {
+            client.setLateTicks(late);
+            long start = System.nanoTime();
+            client.connect(address, clients);
+            boolean done = client.run(seconds * 1_000_000_000L);
+            double secs = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d clients for %.1f s%s: %d ticks (%.0f/s), %d inputs sent, %d dropped, "
+                            + "longest tick gap %.1f ms%n",
+                    clients, secs, done ? "" : " (time up)", client.getTicks(), client.getTicks() / secs,
+                    client.getInputs(), client.getDroppedInputs(), client.getMaxTickGapNanos() / 1e6);
+            System.out.printf("ended: %d verified, %d diverged; %d still playing%n",
+                    client.getVerified(), client.getDiverged(), client.getUnfinished());
+            if (client.getStateMessages() > 0) {
+                long deltas = client.getStateMessages() - client.getKeyframes();
+                System.out.printf("state sync messages (with header): %.2f bytes/tick per match, deltas %.2f bytes, "
+                                + "keyframes %.1f bytes; "
+                                + "%d ticks checked, %d mismatched%n",
+                        (double) client.getStateBytes() / client.getStateMessages(),
+                        (double) (client.getStateBytes() - client.getKeyframeBytes()) / Math.max(1, deltas),
+                        (double) client.getKeyframeBytes() / Math.max(1, client.getKeyframes()),
+                        client.getStateChecks(), client.getStateMismatches());
+            }
+            if (server != null) {
+                System.out.printf("server: %d loops, %d matches running, %d finished, %d match ticks%n",
+                        server.getLoopCount(), server.getMatchesRunning(), server.getMatchesFinished(),
+                        server.getTicks());
+            }
+        } finally {
+            if (server != null) server.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package Burner;
+
+import Block.PowerUpType;
+
+/**
+ * Outcome of one headless match: who lost, how long it ran, and per-player stats.
+ */
+public final class MatchResult {
+    private final int index;
+    private final long seed;
+    private final int loser;
+    private final long ticks;
+    private final int[] piecesSpawned;
+    private final int[][] powerUpUses;
+    private final long[] stateHashes;
+
+    private MatchResult(int index, long seed, int loser, long ticks,
+                        int[] piecesSpawned, int[][] powerUpUses, long[] stateHashes) {
+        this.index = index;
+        this.seed = seed;
+        this.loser = loser;
+        this.ticks = ticks;
+        this.piecesSpawned = piecesSpawned;
+        this.powerUpUses = powerUpUses;
+        this.stateHashes = stateHashes;
+    }
+
+    /** Read the result out of a finished (or abandoned) match. */
+    public static MatchResult of(int index, long seed, Match match) {
+        int players = match.getPlayerCount();
+        PowerUpType[] types = PowerUpType.values();
+        int[] pieces = new int[players];
+        int[][] uses = new int[players][types.length];
+        long[] hashes = new long[players];
+        for (int p = 0; p < players; p++) {
+            GameController c = match.getController(p);
+            pieces[p] = c.getPiecesSpawned();
+            for (PowerUpType t : types) {
+                uses[p][t.ordinal()] = c.getPowerUpUses(t);
+            }
+            hashes[p] = c.getStateHash();
+        }
+        int loser = match.getLoser() == null ? -1 : match.getLoser().getPlayerIndex();
+        return new MatchResult(index, seed, loser, match.getTick(), pieces, uses, hashes);
+    }
+
+    public int getIndex()   { return index; }
+    public long getSeed()   { return seed;  }
+    public long getTicks()  { return ticks; }
+    public int getPlayerCount() { return piecesSpawned.length; }
+
+    /** Index of the player who topped out, or -1 if the match hit the tick limit. */
+    public int getLoser()   { return loser; }
+    public boolean isTimeout() { return loser < 0; }
+
+    public int getPiecesSpawned(int player) { return piecesSpawned[player]; }
+
+    public int getPowerUpUses(int player, PowerUpType type) {
+        return powerUpUses[player][type.ordinal()];
+    }
+
+    /** Final Zobrist state hash of a player, for checking that a seed replays identically. */
+    public long getStateHash(int player) { return stateHashes[player]; }
+}
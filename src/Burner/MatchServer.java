@@ -0,0 +1,680 @@
+package Burner;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many matches in one JVM and runs them authoritatively: clients send only their
+ * inputs, the server steps every Match and tells each client which inputs were applied.
+ *
+ * Connections are multiplexed over a few event loops, each a thread with its own non-blocking
+ * Selector. A loop owns its connections and the matches they play in, so reading an input,
+ * stepping the match and queueing the result never cross threads. The first loop also accepts;
+ * it tops up a lobby left short by a disconnect first, and otherwise opens the next lobby on
+ * the next loop in turn.
+ * Each loop steps all its matches on the fixed 60 Hz timestep of TickScheduler, and only after
+ * a batch of ticks writes what those ticks produced: one write per connection per batch,
+ * however many matches and events went into it.
+ *
+ * Protocol. Client to server: one byte per input, the PlayerAction ordinal; nothing else.
+ * Server to client, integers little-endian:
+ *   START  byte 1, byte seat, byte players, byte rows, byte columns, byte flags, long seed
+ *   TICK   byte 2, varint count, count varints of (player << 3 | action)
+ *   END    byte 3, byte loser (255 for a timeout or abandoned match), varint ticks, long hash[players]
+ *   STATE  byte 4, varint length, a StateSync delta of that length
+ *   KEY    byte 5, varint length, a StateSync keyframe of that length
+ * One TICK is sent per step: the inputs applied at its start, in the order they were applied.
+ * Since a match is determined by its seed and inputs (see Match), a client can mirror it
+ * exactly and check its state against the hashes in END. Flags are Replay's.
+ * With state sync on, each TICK is followed by a STATE or KEY with the state after that step,
+ * and START by a KEY with the state at tick 0, for clients that draw the match without
+ * simulating it.
+ *
+ * A seated client that disconnects leaves its player idle; the match ends when every seat has
+ * gone. A client that sends too fast has the excess inputs of a tick dropped, and one that
+ * reads too slowly to keep MAX_PENDING_OUTPUT bytes buffered is disconnected. A failing
+ * connection or archive write is logged and costs only that connection or recording; only a
+ * failing selector stops a loop.
+ */
+public class MatchServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 7651;
+
+    public static final byte MSG_START = 1;
+    public static final byte MSG_TICK  = 2;
+    public static final byte MSG_END   = 3;
+    public static final byte MSG_STATE = 4;
+    public static final byte MSG_KEY   = 5;
+    public static final int NO_LOSER   = 255;
+
+    // inputs accepted from one connection per tick; more than a human can press
+    private static final int MAX_INPUTS_PER_TICK = 8;
+    // output a connection may have queued before it is dropped, about two seconds of play
+    private static final int MAX_PENDING_OUTPUT = 64 * 1024;
+    private static final int ACTIONS = PlayerAction.values().length;
+    // as TickScheduler: beyond this many ticks behind, the rest of the backlog is dropped
+    private static final int MAX_CATCH_UP_TICKS = 30;
+
+    private final ServerSocketChannel server;
+    private final Loop[] loops;
+    private final int players;
+    private final long baseSeed;
+    private final long maxTicks;
+
+    private volatile boolean running;
+    private volatile boolean instantGravity;
+    private volatile boolean stateSync;
+    private volatile ReplayArchive.Writer archive;
+    // loop the accepting loop opens the next lobby on
+    private int nextLobby;
+
+    private final AtomicInteger nextMatch = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger matchesRunning = new AtomicInteger();
+    private final AtomicInteger matchesFinished = new AtomicInteger();
+    private final AtomicLong ticks = new AtomicLong();
+
+    /**
+     * @param address  where to listen; port 0 picks a free one, see getPort()
+     * @param players  players per match
+     * @param loops    event loop threads
+     * @param baseSeed match n is seeded with BatchRunner.matchSeed(baseSeed, n)
+     * @param maxTicks matches still running after this many ticks end as timeouts
+     */
+    public MatchServer(InetSocketAddress address, int players, int loops, long baseSeed, long maxTicks)
+            throws IOException {
+        if (players < 1 || players > BoardLayout.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Matches need 1 to " + BoardLayout.MAX_PLAYERS + " players");
+        }
+        this.players = players;
+        this.baseSeed = baseSeed;
+        this.maxTicks = maxTicks;
+        this.loops = new Loop[Math.max(1, loops)];
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(address, 1024);
+            server.configureBlocking(false);
+            for (int i = 0; i < this.loops.length; i++) {
+                this.loops[i] = new Loop(i);
+            }
+            server.register(this.loops[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /** Play matches with instant gravity from now on, see GameLogic.setInstantGravity. */
+    public void setInstantGravity(boolean instant) {
+        this.instantGravity = instant;
+    }
+
+    /** Send StateSync state after every step in matches started from now on. */
+    public void setStateSync(boolean sync) {
+        this.stateSync = sync;
+    }
+
+    /** Record every match started from now on into this archive, or stop recording with null. */
+    public void setArchive(ReplayArchive.Writer archive) {
+        this.archive = archive;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        for (Loop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        for (Loop loop : loops) {
+            if (loop == null) continue;
+            loop.selector.wakeup();
+            if (loop.thread.isAlive() && loop.thread != Thread.currentThread()) {
+                try {
+                    loop.thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            loop.shutdown();
+        }
+        try {
+            server.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    public int getLoopCount()          { return loops.length; }
+    public int getConnectionCount()    { return connections.get(); }
+    public int getMatchesRunning()     { return matchesRunning.get(); }
+    public int getMatchesFinished()    { return matchesFinished.get(); }
+    /** Match steps run so far, over all matches. */
+    public long getTicks()             { return ticks.get(); }
+
+    /** Append value as an unsigned LEB128 varint, as in Replay. */
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /** Read an unsigned LEB128 varint at in's position. */
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /** One event loop: a selector, the connections registered with it and their matches. */
+    private final class Loop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        // accepted channels handed over by the accepting loop
+        final Queue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();
+        final List<Connection> lobby = new ArrayList<>();
+        // lobby places taken, including channels still in incoming; read by the accepting loop
+        final AtomicInteger waiting = new AtomicInteger();
+        volatile boolean failed;
+        final List<Hosted> matches = new ArrayList<>();
+        // connections with output queued since the last flush
+        final List<Connection> unflushed = new ArrayList<>();
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(4096);
+
+        Loop(int index) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "match-server-" + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long previous = System.nanoTime();
+            long lag = 0;
+            try {
+                while (running) {
+                    long now = System.nanoTime();
+                    lag += now - previous;
+                    previous = now;
+
+                    int steps = 0;
+                    while (lag >= TickScheduler.TICK_NANOS && steps < MAX_CATCH_UP_TICKS) {
+                        tick();
+                        lag -= TickScheduler.TICK_NANOS;
+                        steps++;
+                    }
+                    if (lag >= TickScheduler.TICK_NANOS) {
+                        lag = 0; // too far behind to catch up; resume from now
+                    }
+                    if (steps > 0) flush();
+
+                    // select has millisecond resolution; oversleeping is made up by the lag
+                    selector.select(Math.max(1, (TickScheduler.TICK_NANOS - lag) / 1_000_000));
+                    register();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                }
+            } catch (IOException e) {
+                // only the selector fails the whole loop; its matches cannot go on without it
+                System.err.println("Match server " + thread.getName() + " stopped: " + e.getMessage());
+                failed = true;
+                abandon();
+            }
+        }
+
+        /** Disconnect everyone on a loop that can no longer run, so no client waits on it. */
+        private void abandon() {
+            for (Hosted hosted : matches) {
+                for (Connection connection : hosted.seats) {
+                    if (connection != null) drop(connection);
+                }
+            }
+            matchesRunning.addAndGet(-matches.size());
+            matches.clear();
+            for (int i = lobby.size() - 1; i >= 0; i--) {
+                drop(lobby.get(i));
+            }
+            SocketChannel channel;
+            while ((channel = incoming.poll()) != null) {
+                closeQuietly(channel);
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) return;
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            if (key.isReadable()) read(connection);
+            if (key.isValid() && key.isWritable()) connection.flush();
+        }
+
+        private void accept() {
+            while (true) {
+                SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (IOException e) {
+                    // out of descriptors, say; the selector reports the backlog again next time
+                    System.err.println("Failed to accept a connection: " + e.getMessage());
+                    return;
+                }
+                if (channel == null) return;
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                } catch (IOException e) {
+                    closeQuietly(channel); // reset during the handshake
+                    continue;
+                }
+                Loop target = lobbyFor();
+                target.waiting.incrementAndGet();
+                target.incoming.add(channel);
+                if (target != this) target.selector.wakeup();
+            }
+        }
+
+        /** The loop with a partly filled lobby, else the next loop in turn to open one. */
+        private Loop lobbyFor() {
+            for (Loop loop : loops) {
+                int n = loop.waiting.get();
+                if (!loop.failed && n > 0 && n < players) return loop;
+            }
+            Loop loop;
+            do {
+                loop = loops[nextLobby];
+                nextLobby = (nextLobby + 1) % loops.length;
+            } while (loop.failed && loop != this);
+            return loop;
+        }
+
+        private void register() {
+            SocketChannel channel;
+            while ((channel = incoming.poll()) != null) {
+                Connection connection = new Connection(this, channel);
+                try {
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                    waiting.decrementAndGet();
+                    continue;
+                }
+                connections.incrementAndGet();
+                lobby.add(connection);
+                if (lobby.size() == players) {
+                    startMatch();
+                }
+            }
+        }
+
+        private void startMatch() {
+            int index = nextMatch.getAndIncrement();
+            Match match = Match.create(players, BatchRunner.matchSeed(baseSeed, index));
+            match.setInstantGravity(instantGravity);
+            Hosted hosted = new Hosted(match, lobby.toArray(new Connection[0]), archive, stateSync);
+            lobby.clear();
+            waiting.addAndGet(-players);
+            matches.add(hosted);
+            matchesRunning.incrementAndGet();
+            hosted.start();
+        }
+
+        private void read(Connection connection) {
+            readBuffer.clear();
+            int n;
+            try {
+                n = connection.channel.read(readBuffer);
+            } catch (IOException e) {
+                n = -1; // reset by peer
+            }
+            if (n < 0) {
+                drop(connection);
+                return;
+            }
+            for (int i = 0; i < n; i++) {
+                int ordinal = readBuffer.get(i) & 0xFF;
+                if (ordinal >= ACTIONS) {
+                    drop(connection); // not speaking the protocol
+                    return;
+                }
+                // inputs sent before the match starts, or after too many this tick, are dropped
+                if (connection.match != null && connection.inputsThisTick < MAX_INPUTS_PER_TICK) {
+                    connection.inputsThisTick++;
+                    connection.match.match.submit(connection.seat, PlayerAction.fromOrdinal(ordinal));
+                }
+            }
+        }
+
+        /** Step every match once and queue what it produced. */
+        private void tick() {
+            for (int i = matches.size() - 1; i >= 0; i--) {
+                Hosted hosted = matches.get(i);
+                if (!hosted.step()) {
+                    matches.remove(i);
+                    matchesRunning.decrementAndGet();
+                    matchesFinished.incrementAndGet();
+                }
+            }
+        }
+
+        private void flush() {
+            for (int i = 0; i < unflushed.size(); i++) {
+                unflushed.get(i).flush();
+            }
+            unflushed.clear();
+        }
+
+        /** Close a connection and free its seat or lobby place. */
+        void drop(Connection connection) {
+            if (!connection.channel.isOpen()) return;
+            connection.key.cancel();
+            try {
+                connection.channel.close();
+            } catch (IOException ignored) {
+            }
+            connections.decrementAndGet();
+            if (connection.match != null) {
+                connection.match.seats[connection.seat] = null;
+            } else if (lobby.remove(connection)) {
+                waiting.decrementAndGet();
+            }
+        }
+
+        void shutdown() {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) drop((Connection) key.attachment());
+            }
+            SocketChannel channel;
+            while ((channel = incoming.poll()) != null) {
+                closeQuietly(channel);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /** A running match and the connections seated in it. */
+    private final class Hosted implements Match.InputListener {
+        final Match match;
+        final Connection[] seats;
+        final ReplayRecorder recorder;
+        final ReplayArchive.Writer archive;
+        // this step's inputs as the match applies them, and the TICK message they go into
+        final ByteBuffer events;
+        final ByteBuffer message;
+        int eventCount;
+        // state sync, or null if off: the encoder, its payload and the message around it
+        final StateSync.Encoder sync;
+        final ByteBuffer syncPayload;
+        final ByteBuffer syncMessage;
+
+        Hosted(Match match, Connection[] seats, ReplayArchive.Writer archive, boolean stateSync) {
+            this.match = match;
+            this.seats = seats;
+            this.archive = archive;
+            this.recorder = archive == null ? null : ReplayRecorder.attach(match);
+            // at most MAX_INPUTS_PER_TICK inputs per player of up to two bytes each
+            this.events = ByteBuffer.allocate(seats.length * MAX_INPUTS_PER_TICK * 2);
+            this.message = ByteBuffer.allocate(1 + 5 + events.capacity());
+            match.setInputListener(this);
+
+            GameGrid grid = match.getController(0).getGrid();
+            if (stateSync) {
+                sync = new StateSync.Encoder(seats.length, grid.getRows(), grid.getColumns(),
+                        StateSync.DEFAULT_KEYFRAME_TICKS);
+                syncPayload = ByteBuffer.allocate(StateSync.maxPayload(seats.length, grid.getRows(), grid.getColumns()));
+                syncMessage = ByteBuffer.allocate(1 + 5 + syncPayload.capacity());
+            } else {
+                sync = null;
+                syncPayload = syncMessage = null;
+            }
+        }
+
+        void start() {
+            match.start();
+            int flags = match.isInstantGravity() ? Replay.FLAG_INSTANT_GRAVITY : 0;
+            GameGrid grid = match.getController(0).getGrid();
+            ByteBuffer start = ByteBuffer.allocate(14).order(ByteOrder.LITTLE_ENDIAN);
+            for (int seat = 0; seat < seats.length; seat++) {
+                seats[seat].match = this;
+                seats[seat].seat = seat;
+                start.clear();
+                start.put(MSG_START).put((byte) seat).put((byte) seats.length)
+                     .put((byte) grid.getRows()).put((byte) grid.getColumns()).put((byte) flags)
+                     .putLong(match.getSeed());
+                start.flip();
+                seats[seat].queue(start);
+            }
+            queueState();
+        }
+
+        /** Queue the state after the last step as a STATE or KEY, if state sync is on. */
+        private void queueState() {
+            if (sync == null) return;
+            syncPayload.clear();
+            boolean keyframe = sync.encode(match.getControllers(), syncPayload);
+            syncPayload.flip();
+            syncMessage.clear();
+            syncMessage.put(keyframe ? MSG_KEY : MSG_STATE);
+            putVarint(syncMessage, syncPayload.remaining());
+            syncMessage.put(syncPayload);
+            syncMessage.flip();
+            for (Connection connection : seats) {
+                if (connection == null) continue;
+                connection.queue(syncMessage);
+                syncMessage.rewind();
+            }
+        }
+
+        @Override
+        public void onInput(long tick, int player, PlayerAction action) {
+            if (recorder != null) recorder.onInput(tick, player, action);
+            putVarint(events, ((long) player << Replay.ACTION_BITS) | action.ordinal());
+            eventCount++;
+        }
+
+        /** Step once and queue the TICK, and END if it finished; false once it has ended. */
+        boolean step() {
+            events.clear();
+            eventCount = 0;
+            match.step();
+            ticks.incrementAndGet();
+
+            events.flip();
+            message.clear();
+            message.put(MSG_TICK);
+            putVarint(message, eventCount);
+            message.put(events);
+            message.flip();
+            boolean seated = false;
+            for (Connection connection : seats) {
+                if (connection == null) continue;
+                seated = true;
+                connection.inputsThisTick = 0;
+                connection.queue(message);
+                message.rewind();
+            }
+            queueState();
+
+            if (!seated || match.isOver() || match.getTick() >= maxTicks) {
+                finish();
+                return false;
+            }
+            return true;
+        }
+
+        private void finish() {
+            ByteBuffer end = ByteBuffer.allocate(2 + 10 + 8 * seats.length).order(ByteOrder.LITTLE_ENDIAN);
+            end.put(MSG_END);
+            end.put((byte) (match.getLoser() == null ? NO_LOSER : match.getLoser().getPlayerIndex()));
+            putVarint(end, match.getTick());
+            for (int p = 0; p < seats.length; p++) {
+                end.putLong(match.getController(p).getStateHash());
+            }
+            end.flip();
+            for (Connection connection : seats) {
+                if (connection == null) continue;
+                connection.queue(end);
+                end.rewind();
+                connection.closeWhenFlushed = true;
+            }
+            if (recorder != null) {
+                try {
+                    archive.append(recorder.finish());
+                } catch (IOException e) {
+                    // lose this recording, not the loop and every match on it
+                    System.err.println("Failed to archive match " + Long.toHexString(match.getSeed())
+                            + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** One client socket and the output queued for it. */
+    private static final class Connection {
+        final Loop loop;
+        final SocketChannel channel;
+        SelectionKey key;
+        Hosted match;
+        int seat;
+        int inputsThisTick;
+        boolean closeWhenFlushed;
+        // queued output in write mode: bytes [0, position) wait to be sent
+        ByteBuffer out = ByteBuffer.allocateDirect(512);
+
+        Connection(Loop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        /** Copy a message into the queue, consuming it; sent at the loop's next flush. */
+        void queue(ByteBuffer message) {
+            if (!channel.isOpen()) return;
+            if (out.remaining() < message.remaining()) {
+                int needed = out.position() + message.remaining();
+                if (needed > MAX_PENDING_OUTPUT) {
+                    loop.drop(this); // not reading; don't buffer for it forever
+                    return;
+                }
+                ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(needed, out.capacity() * 2));
+                out.flip();
+                bigger.put(out);
+                out = bigger;
+            }
+            if (out.position() == 0) loop.unflushed.add(this);
+            out.put(message);
+        }
+
+        /** Write as much queued output as the socket takes; wait for OP_WRITE for the rest. */
+        void flush() {
+            if (!channel.isOpen()) return;
+            out.flip();
+            try {
+                channel.write(out);
+            } catch (IOException e) {
+                out.clear();
+                loop.drop(this);
+                return;
+            }
+            out.compact();
+            if (out.position() > 0) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+                if (closeWhenFlushed) loop.drop(this);
+            }
+        }
+    }
+
+    /**
+     * Usage: MatchServer [-port n] [-players n] [-loops n] [-seed n] [-archive base] [-instant] [-sync]
+     * Serves until killed, printing the load every five seconds.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        int port = DEFAULT_PORT, players = 2;
+        int loops = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        long seed = System.nanoTime();
+        boolean instant = false, sync = false;
+        String archivePath = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-port":    port = Integer.parseInt(args[++i]); break;
+                case "-players": players = Integer.parseInt(args[++i]); break;
+                case "-loops":   loops = Integer.parseInt(args[++i]); break;
+                case "-seed":    seed = Long.parseLong(args[++i]); break;
+                case "-archive": archivePath = args[++i]; break;
+                case "-instant": instant = true; break;
+                case "-sync":    sync = true; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        try (ReplayArchive.Writer archive = archivePath == null ? null : new ReplayArchive.Writer(Paths.get(archivePath));
+             MatchServer server = new MatchServer(new InetSocketAddress(port), players, loops, seed,
+                     BatchRunner.DEFAULT_MAX_TICKS)) {
+            server.setArchive(archive);
+            server.setInstantGravity(instant);
+            server.setStateSync(sync);
+            server.start();
+            System.out.printf("serving %d-player matches on port %d with %d loops%n",
+                    players, server.getPort(), server.getLoopCount());
+            long lastTicks = 0;
+            long last = System.nanoTime();
+            while (true) {
+                Thread.sleep(5000);
+                long now = System.nanoTime();
+                long total = server.getTicks();
+                System.out.printf("%d connections, %d matches running, %d finished, %.0f match ticks/s%n",
+                        server.getConnectionCount(), server.getMatchesRunning(), server.getMatchesFinished(),
+                        (total - lastTicks) * 1e9 / (now - last));
+                lastTicks = total;
+                last = now;
+            }
+        }
+    }
+}
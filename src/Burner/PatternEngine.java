@@ -0,0 +1,189 @@
+package Burner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Special patterns compiled for one grid size.
+ *
+ * Every place a pattern can sit on the board becomes a placement. A placement is stored as
+ * (type, word, bits) checks against the grid's type bitboards, so testing it is a handful of
+ * AND-compares no matter how long the sequence is. Each cell also keeps a bitset of the
+ * placements that cover it, so one pass over the dirty cells yields every placement worth
+ * testing, for all patterns at once.
+ */
+public class PatternEngine {
+    private final List<SpecialPattern> patterns;
+
+    // placement -> pattern, cells to clear, and its range in the check tables
+    private final SpecialPattern[] placementPattern;
+    private final int[][] placementBits;
+    private final int[] checkStart;
+    private final int[] checkType;
+    private final int[] checkWord;
+    private final long[] checkBits;
+    private final int[][] typeNeeds;          // placement -> cells needed per type, for a cheap count test
+
+    private final long[][] placementsByCell;  // bit index -> bitset of placements covering that cell
+
+    // evaluation buffers, reused by every pass
+    private final long[] candidates;
+    private final SpecialPattern[] matches;
+
+    public PatternEngine(GameGrid grid, List<SpecialPattern> patterns) {
+        this.patterns = List.copyOf(patterns);
+        int rows = grid.getRows();
+        int cols = grid.getColumns();
+        int typeCount = grid.getTypeMaskCount();
+
+        List<SpecialPattern> owners = new ArrayList<>();
+        List<int[]> cellLists = new ArrayList<>();
+        for (SpecialPattern p : this.patterns) {
+            for (int i = 0; i < p.getLength(); i++) {
+                if (p.getType(i) < 0 || p.getType(i) >= typeCount) {
+                    throw new IllegalArgumentException("Pattern " + p.getName()
+                            + " uses unknown type " + p.getType(i));
+                }
+            }
+            int rowFrom = anchorFrom(p.getAnchorRow(), rows);
+            int rowTo   = anchorTo(p.getAnchorRow(), rows);
+            int colFrom = anchorFrom(p.getAnchorColumn(), cols);
+            int colTo   = anchorTo(p.getAnchorColumn(), cols);
+            for (int r = rowFrom; r <= rowTo; r++) {
+                for (int c = colFrom; c <= colTo; c++) {
+                    int endRow = r + (p.getLength() - 1) * p.getRowStep();
+                    int endCol = c + (p.getLength() - 1) * p.getColumnStep();
+                    if (grid.isOutOfBounds(r, c) || grid.isOutOfBounds(endRow, endCol)) continue;
+                    int[] bits = new int[p.getLength()];
+                    for (int i = 0; i < bits.length; i++) {
+                        bits[i] = grid.bitIndex(r + i * p.getRowStep(), c + i * p.getColumnStep());
+                    }
+                    owners.add(p);
+                    cellLists.add(bits);
+                }
+            }
+        }
+
+        int count = owners.size();
+        placementPattern = owners.toArray(new SpecialPattern[0]);
+        placementBits = cellLists.toArray(new int[0][]);
+        typeNeeds = new int[count][typeCount];
+        checkStart = new int[count + 1];
+
+        // one check per (type, word) pair a placement touches
+        List<long[]> checks = new ArrayList<>();
+        for (int p = 0; p < count; p++) {
+            checkStart[p] = checks.size();
+            SpecialPattern pattern = placementPattern[p];
+            int[] bits = placementBits[p];
+            for (int i = 0; i < bits.length; i++) {
+                int type = pattern.getType(i);
+                int word = bits[i] >>> 6;
+                typeNeeds[p][type]++;
+                long[] check = null;
+                for (int k = checkStart[p]; k < checks.size(); k++) {
+                    long[] existing = checks.get(k);
+                    if (existing[0] == type && existing[1] == word) {
+                        check = existing;
+                        break;
+                    }
+                }
+                if (check == null) {
+                    check = new long[]{type, word, 0L};
+                    checks.add(check);
+                }
+                check[2] |= 1L << bits[i];
+            }
+        }
+        checkStart[count] = checks.size();
+        checkType = new int[checks.size()];
+        checkWord = new int[checks.size()];
+        checkBits = new long[checks.size()];
+        for (int k = 0; k < checks.size(); k++) {
+            checkType[k] = (int) checks.get(k)[0];
+            checkWord[k] = (int) checks.get(k)[1];
+            checkBits[k] = checks.get(k)[2];
+        }
+
+        int placementWords = BitBoard.wordsFor(count);
+        placementsByCell = new long[rows * grid.getStride()][placementWords];
+        for (int p = 0; p < count; p++) {
+            for (int bit : placementBits[p]) {
+                BitBoard.set(placementsByCell[bit], p);
+            }
+        }
+        candidates = new long[placementWords];
+        matches = new SpecialPattern[count];
+    }
+
+    public List<SpecialPattern> getPatterns() {
+        return patterns;
+    }
+
+    /** Number of board positions the compiled patterns can occupy. */
+    public int getPlacementCount() {
+        return placementPattern.length;
+    }
+
+    /**
+     * Tests every placement that covers a dirty cell and marks the cells of each match in toClear.
+     * @return how many placements matched; read them back with {@link #getMatch(int)}
+     */
+    public int evaluate(GameGrid grid, long[] dirtyCells, long[] toClear) {
+        if (placementPattern.length == 0) return 0;
+
+        Arrays.fill(candidates, 0L);
+        for (int w = 0; w < dirtyCells.length; w++) {
+            long bits = dirtyCells[w];
+            while (bits != 0) {
+                int bit = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                BitBoard.or(placementsByCell[bit], candidates);
+            }
+        }
+
+        int found = 0;
+        for (int w = 0; w < candidates.length; w++) {
+            long bits = candidates[w];
+            while (bits != 0) {
+                int p = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (matches(grid, p)) {
+                    for (int bit : placementBits[p]) {
+                        BitBoard.set(toClear, bit);
+                    }
+                    matches[found++] = placementPattern[p];
+                }
+            }
+        }
+        return found;
+    }
+
+    /** The pattern behind the i-th match of the last evaluate call. */
+    public SpecialPattern getMatch(int i) {
+        return matches[i];
+    }
+
+    private boolean matches(GameGrid grid, int p) {
+        int[] needs = typeNeeds[p];
+        for (int t = 0; t < needs.length; t++) {
+            if (grid.countOf(t) < needs[t]) return false;
+        }
+        for (int k = checkStart[p]; k < checkStart[p + 1]; k++) {
+            long[] board = grid.getTypeMask(checkType[k]);
+            if ((board[checkWord[k]] & checkBits[k]) != checkBits[k]) return false;
+        }
+        return true;
+    }
+
+    private static int anchorFrom(int anchor, int size) {
+        if (anchor == SpecialPattern.ANY) return 0;
+        return anchor < 0 ? size + anchor : anchor;
+    }
+
+    private static int anchorTo(int anchor, int size) {
+        if (anchor == SpecialPattern.ANY) return size - 1;
+        return anchor < 0 ? size + anchor : anchor;
+    }
+}
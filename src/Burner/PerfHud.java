@@ -0,0 +1,104 @@
+package Burner;
+
+import java.awt.*;
+
+/**
+ * Draws a PerfStats as a small opaque panel: one row per measurement with its latest
+ * and largest value in the window and a bar per histogram bucket, tallest bucket full height.
+ *
+ * Numbers are formatted into a reused char buffer and the bucket counts copied into a reused
+ * array, so drawing the overlay allocates nothing.
+ */
+public class PerfHud {
+    private static final int PADDING    = 6;
+    private static final int ROW_HEIGHT = 26;
+    private static final int LABEL_W    = 86;
+    private static final int VALUE_W    = 92;
+    private static final int BAR_W      = 5;
+    private static final int BAR_H      = 16;
+
+    private static final Font  FONT       = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+    private static final Color BACKGROUND = new Color(24, 24, 24);
+    private static final Color TEXT       = new Color(220, 220, 220);
+    private static final Color BARS       = new Color(90, 200, 120);
+    private static final Color BAR_FLOOR  = new Color(70, 70, 70);
+
+    private static final String[] TICK_LABELS = { "tick P1 us", "tick P2 us", "tick P3 us", "tick P4 us",
+                                                  "tick P5 us", "tick P6 us", "tick P7 us", "tick P8 us" };
+
+    private final PerfStats stats;
+    private final int[] counts;
+    private final char[] text = new char[32];
+
+    public PerfHud(PerfStats stats) {
+        this.stats = stats;
+        this.counts = new int[stats.getPaintMicros().getBucketCount()];
+    }
+
+    public int getWidth() {
+        return 2 * PADDING + LABEL_W + VALUE_W + counts.length * BAR_W;
+    }
+
+    public int getHeight() {
+        return 2 * PADDING + (5 + stats.getPlayerCount()) * ROW_HEIGHT;
+    }
+
+    public void paint(Graphics2D g2, int x, int y) {
+        g2.setColor(BACKGROUND);
+        g2.fillRect(x, y, getWidth(), getHeight());
+        g2.setFont(FONT);
+
+        int row = y + PADDING;
+        paintRow(g2, x, row, "paint us", stats.getPaintMicros(), 1);
+        row += ROW_HEIGHT;
+        for (int p = 0; p < stats.getPlayerCount(); p++) {
+            String label = p < TICK_LABELS.length ? TICK_LABELS[p] : "tick us";
+            paintRow(g2, x, row, label, stats.getTickMicros(p), 1);
+            row += ROW_HEIGHT;
+        }
+        paintRow(g2, x, row, "gravity", stats.getGravity(), 1);
+        row += ROW_HEIGHT;
+        paintRow(g2, x, row, "repaint/s", stats.getRepaintRate(), 1);
+        row += ROW_HEIGHT;
+        paintRow(g2, x, row, stats.hasAllocationRate() ? "alloc MB/s" : "alloc n/a", stats.getAllocKbPerSec(), 1024);
+        row += ROW_HEIGHT;
+        paintRow(g2, x, row, "GC pause ms", stats.getGcPauseMillis(), 1);
+    }
+
+    /** Label, "latest/max" (divided by divisor), then the buckets as bars along the row. */
+    private void paintRow(Graphics2D g2, int x, int y, String label, RollingHistogram histogram, long divisor) {
+        int baseline = y + BAR_H;
+        g2.setColor(TEXT);
+        g2.drawString(label, x + PADDING, baseline);
+
+        int length = append(histogram.getLatest() / divisor, 0);
+        text[length++] = '/';
+        length = append(histogram.getMax() / divisor, length);
+        g2.drawChars(text, 0, length, x + PADDING + LABEL_W, baseline);
+
+        int max = histogram.copyCounts(counts);
+        int barsX = x + PADDING + LABEL_W + VALUE_W;
+        g2.setColor(BAR_FLOOR);
+        g2.fillRect(barsX, baseline, counts.length * BAR_W, 1);
+        g2.setColor(BARS);
+        for (int b = 0; b < counts.length; b++) {
+            if (counts[b] == 0) continue;
+            int h = Math.max(1, counts[b] * BAR_H / Math.max(1, max));
+            g2.fillRect(barsX + b * BAR_W, baseline - h, BAR_W - 1, h);
+        }
+    }
+
+    /** Write value in decimal into text at from; returns the end. */
+    private int append(long value, int from) {
+        value = Math.max(0, value);
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        int end = Math.min(text.length, from + digits);
+        for (int i = from + digits - 1; i >= from; i--, value /= 10) {
+            if (i < end) text[i] = (char) ('0' + value % 10);
+        }
+        return end;
+    }
+}
@@ -0,0 +1,135 @@
+package Burner;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Rolling measurements behind the performance HUD: paint time, each controller's tick time,
+ * active gravity animations, repaints per second, allocation rate and GC pauses.
+ *
+ * Paint and tick times are recorded as they happen. Rates are sampled every SAMPLE_NANOS
+ * from the paint thread: repaints counted since the last sample, bytes allocated by the tick
+ * and paint threads (where com.sun.management offers it; asking about every thread would
+ * itself allocate) and the collectors' count and time. A sample in which collectors ran
+ * records their average pause once per collection.
+ *
+ * Nothing here touches AWT; nothing allocates after construction.
+ */
+public class PerfStats implements Match.TickTimer {
+    /** How often rates are sampled, and so how often a HUD needs redrawing. */
+    public static final long SAMPLE_NANOS = 250_000_000L;
+
+    // values kept per histogram, and power-of-two buckets per histogram
+    private static final int WINDOW  = 240;
+    private static final int BUCKETS = 12;
+
+    private final RollingHistogram paintMicros   = new RollingHistogram(WINDOW, BUCKETS, 64);
+    private final RollingHistogram[] tickMicros;
+    private final RollingHistogram gravity       = new RollingHistogram(WINDOW, BUCKETS, 1);
+    private final RollingHistogram repaintRate   = new RollingHistogram(WINDOW, BUCKETS, 2);
+    private final RollingHistogram allocKbPerSec = new RollingHistogram(WINDOW, BUCKETS, 256);
+    private final RollingHistogram gcPauseMillis = new RollingHistogram(WINDOW, BUCKETS, 1);
+
+    private final com.sun.management.ThreadMXBean allocation;
+    private final GarbageCollectorMXBean[] collectors;
+
+    // paint-thread sampling state
+    private long lastSample;
+    private int paintsSinceSample;
+    private long lastAllocated = -1;
+    private long paintThread = -1;
+    private volatile long tickThread = -1;
+    private long lastTickThread = -1;
+    private long lastGcCount, lastGcMillis;
+
+    public PerfStats(int players) {
+        tickMicros = new RollingHistogram[players];
+        for (int p = 0; p < players; p++) {
+            tickMicros[p] = new RollingHistogram(WINDOW, BUCKETS, 4);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean sun = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        if (sun != null && sun.isThreadAllocatedMemorySupported()) {
+            sun.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            sun = null;
+        }
+        allocation = sun;
+
+        List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        collectors = beans.toArray(new GarbageCollectorMXBean[0]);
+        for (GarbageCollectorMXBean gc : collectors) {
+            lastGcCount  += Math.max(0, gc.getCollectionCount());
+            lastGcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        lastSample = System.nanoTime();
+    }
+
+    @Override
+    public void onControllerTick(int player, long nanos) {
+        if (tickThread < 0) tickThread = Thread.currentThread().getId();
+        if (player < tickMicros.length) {
+            tickMicros[player].record(nanos / 1000);
+        }
+    }
+
+    /** Record how many players' gravity animations are running; once per published frame. */
+    public void recordGravity(int active) {
+        gravity.record(active);
+    }
+
+    /** Record one paint and how long it took; on the paint thread. */
+    public void recordPaint(long nanos) {
+        paintMicros.record(nanos / 1000);
+        paintsSinceSample++;
+    }
+
+    /** Take a rate sample if SAMPLE_NANOS have passed since the last one; on the paint thread. */
+    public void sample(long now) {
+        long elapsed = now - lastSample;
+        if (elapsed < SAMPLE_NANOS) return;
+        lastSample = now;
+
+        repaintRate.record(paintsSinceSample * 1_000_000_000L / elapsed);
+        paintsSinceSample = 0;
+
+        if (allocation != null) {
+            if (paintThread < 0) paintThread = Thread.currentThread().getId();
+            long tick = tickThread;
+            long allocated = Math.max(0, allocation.getThreadAllocatedBytes(paintThread))
+                    + (tick < 0 ? 0 : Math.max(0, allocation.getThreadAllocatedBytes(tick)));
+            // the first sample after the tick thread shows up only sets the baseline
+            if (lastAllocated >= 0 && tick == lastTickThread && allocated >= lastAllocated) {
+                allocKbPerSec.record((allocated - lastAllocated) * 1_000_000L / 1024 / (elapsed / 1000));
+            }
+            lastAllocated = allocated;
+            lastTickThread = tick;
+        }
+
+        long count = 0, millis = 0;
+        for (GarbageCollectorMXBean gc : collectors) {
+            count  += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        long collections = count - lastGcCount;
+        for (long i = 0; i < Math.min(collections, WINDOW); i++) {
+            gcPauseMillis.record((millis - lastGcMillis) / collections);
+        }
+        lastGcCount = count;
+        lastGcMillis = millis;
+    }
+
+    public int getPlayerCount()                    { return tickMicros.length; }
+    public RollingHistogram getPaintMicros()       { return paintMicros; }
+    public RollingHistogram getTickMicros(int p)   { return tickMicros[p]; }
+    public RollingHistogram getGravity()           { return gravity; }
+    public RollingHistogram getRepaintRate()       { return repaintRate; }
+    public RollingHistogram getAllocKbPerSec()     { return allocKbPerSec; }
+    public RollingHistogram getGcPauseMillis()     { return gcPauseMillis; }
+    /** False if this JVM can't report allocated bytes; the allocation histogram stays empty. */
+    public boolean hasAllocationRate()             { return allocation != null; }
+}
@@ -0,0 +1,22 @@
+package Burner;
+
+/**
+ * One player input. Key handlers submit these to a GameController,
+ * which applies them at the start of its next tick.
+ */
+public enum PlayerAction {
+    MOVE_LEFT,
+    MOVE_RIGHT,
+    DROP,
+    CYCLE,
+    POWER_UP,
+    SOFT_DROP_ON,
+    SOFT_DROP_OFF;
+
+    private static final PlayerAction[] VALUES = values();
+
+    /** Lookup by ordinal without cloning values() each time. */
+    public static PlayerAction fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
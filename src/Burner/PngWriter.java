@@ -0,0 +1,110 @@
+package Burner;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes opaque images as 8-bit RGB PNGs, several times faster than ImageIO's PNG writer.
+ *
+ * Every row gets the Sub filter, so the long runs of flat colour in a board become runs of
+ * zeros, and is deflated at the fastest level. Buffers and the Deflater are reused from one
+ * image to the next, so keep one writer per thread.
+ */
+public final class PngWriter {
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final int IHDR = 0x49484452;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+    private final byte[] chunk = new byte[1 << 16];
+    private int[] pixels = new int[0];
+    private byte[] row = new byte[0];
+
+    public void write(BufferedImage image, Path file) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (pixels.length < width) {
+            pixels = new int[width];
+            row = new byte[1 + 3 * width];
+        }
+        boolean intRgb = image.getType() == BufferedImage.TYPE_INT_RGB
+                || image.getType() == BufferedImage.TYPE_INT_ARGB;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.write(SIGNATURE);
+
+            byte[] header = new byte[13];
+            putInt(header, 0, width);
+            putInt(header, 4, height);
+            header[8] = 8;      // bits per sample
+            header[9] = 2;      // colour type: RGB
+            writeChunk(out, IHDR, header, header.length);
+
+            deflater.reset();
+            for (int y = 0; y < height; y++) {
+                if (intRgb) {
+                    image.getRaster().getDataElements(0, y, width, 1, pixels);
+                } else {
+                    image.getRGB(0, y, width, 1, pixels, 0, width);
+                }
+                filterRow(width);
+                deflater.setInput(row, 0, 1 + 3 * width);
+                while (!deflater.needsInput()) {
+                    flush(out, deflater.deflate(chunk, 0, chunk.length, Deflater.NO_FLUSH));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                flush(out, deflater.deflate(chunk));
+            }
+            writeChunk(out, IEND, chunk, 0);
+        }
+    }
+
+    /** The Sub filter: each byte minus the same channel of the pixel to its left. */
+    private void filterRow(int width) {
+        row[0] = 1;
+        int prev = 0;
+        for (int x = 0, i = 1; x < width; x++, i += 3) {
+            int rgb = pixels[x];
+            row[i]     = (byte) ((rgb >> 16) - (prev >> 16));
+            row[i + 1] = (byte) ((rgb >> 8) - (prev >> 8));
+            row[i + 2] = (byte) (rgb - prev);
+            prev = rgb;
+        }
+    }
+
+    private void flush(DataOutputStream out, int length) throws IOException {
+        if (length > 0) {
+            writeChunk(out, IDAT, chunk, length);
+        }
+    }
+
+    private void writeChunk(DataOutputStream out, int type, byte[] data, int length) throws IOException {
+        out.writeInt(length);
+        out.writeInt(type);
+        out.write(data, 0, length);
+        crc.reset();
+        crc.update(type >>> 24);
+        crc.update(type >>> 16);
+        crc.update(type >>> 8);
+        crc.update(type);
+        crc.update(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void putInt(byte[] b, int at, int v) {
+        b[at]     = (byte) (v >>> 24);
+        b[at + 1] = (byte) (v >>> 16);
+        b[at + 2] = (byte) (v >>> 8);
+        b[at + 3] = (byte) v;
+    }
+}
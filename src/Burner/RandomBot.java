@@ -0,0 +1,27 @@
+package Burner;
+
+import java.util.SplittableRandom;
+
+/**
+ * Mashes random keys, on average one every few ticks. A baseline opponent
+ * that also exercises every input path.
+ */
+public class RandomBot implements Bot {
+    private static final PlayerAction[] ACTIONS = {
+            PlayerAction.MOVE_LEFT, PlayerAction.MOVE_RIGHT, PlayerAction.DROP,
+            PlayerAction.CYCLE, PlayerAction.POWER_UP
+    };
+    private static final int TICKS_PER_ACTION = 8;
+
+    private final SplittableRandom random;
+
+    public RandomBot(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public PlayerAction nextAction(Match match, int player) {
+        if (random.nextInt(TICKS_PER_ACTION) != 0) return null;
+        return ACTIONS[random.nextInt(ACTIONS.length)];
+    }
+}
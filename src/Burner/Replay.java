@@ -0,0 +1,185 @@
+package Burner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A recorded match: its seed and setup, plus every input in the order it was applied.
+ * Since all randomness comes from the seed (see Match), that is enough to re-simulate
+ * the whole match with ReplayEngine.
+ *
+ * Binary layout, little-endian:
+ *   int magic "BBRP", byte version, byte players, byte rows, byte columns,
+ *   byte loser (-1 for a timeout), byte flags, long seed, int ticks, int eventCount, int eventBytes,
+ *   long finalHash[players], then eventBytes of events.
+ * Each event is one unsigned LEB128 varint of ((tickDelta * players + player) << 3 | action),
+ * tickDelta counting from the previous event. Inputs a few ticks apart from two players take
+ * one or two bytes each, so a full match is a few kilobytes.
+ * Version 1 had no flags byte; it is still read, as flags 0.
+ */
+public final class Replay {
+    public static final int MAGIC   = 0x50524242; // "BBRP" read as little-endian
+    public static final int VERSION = 2;
+    static final int ACTION_BITS = 3;
+
+    /** Flag: the match was played with GameLogic's instant gravity. */
+    public static final int FLAG_INSTANT_GRAVITY = 1;
+
+    private final long seed;
+    private final int players;
+    private final int rows;
+    private final int columns;
+    private final int ticks;
+    private final int loser;
+    private final int flags;
+    private final long[] finalHashes;
+    private final int eventCount;
+    private final ByteBuffer events;   // read-only, position 0, limit = encoded length
+
+    Replay(long seed, int players, int rows, int columns, int ticks, int loser, int flags,
+           long[] finalHashes, int eventCount, ByteBuffer events) {
+        this.seed = seed;
+        this.players = players;
+        this.rows = rows;
+        this.columns = columns;
+        this.ticks = ticks;
+        this.loser = loser;
+        this.flags = flags;
+        this.finalHashes = finalHashes;
+        this.eventCount = eventCount;
+        this.events = events.asReadOnlyBuffer();
+    }
+
+    public long getSeed()       { return seed; }
+    public int getPlayerCount() { return players; }
+    public int getRows()        { return rows; }
+    public int getColumns()     { return columns; }
+    /** Ticks the recorded match ran, including the one in which it ended. */
+    public int getTicks()       { return ticks; }
+    /** Seat of the player who topped out, or -1 if the match was stopped early. */
+    public int getLoser()       { return loser; }
+    public int getFlags()       { return flags; }
+    public boolean isInstantGravity() { return (flags & FLAG_INSTANT_GRAVITY) != 0; }
+    public int getEventCount()  { return eventCount; }
+    public int getEventBytes()  { return events.limit(); }
+
+    /** The player's GameController state hash when recording finished. */
+    public long getFinalHash(int player) { return finalHashes[player]; }
+
+    /** A cursor over the events, oldest first. */
+    public Cursor events() {
+        return new Cursor();
+    }
+
+    public final class Cursor {
+        private int pos;
+        private int left = eventCount;
+        private long tick;
+        private int player;
+        private PlayerAction action;
+
+        /** Advance to the next event; false once all have been read. */
+        public boolean next() {
+            if (left == 0) return false;
+            left--;
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = events.get(pos++);
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            action = PlayerAction.fromOrdinal((int) (v & ((1 << ACTION_BITS) - 1)));
+            v >>>= ACTION_BITS;
+            player = (int) (v % players);
+            tick += v / players;
+            return true;
+        }
+
+        /** Match tick at whose start the input was applied. */
+        public long tick()           { return tick; }
+        public int player()          { return player; }
+        public PlayerAction action() { return action; }
+    }
+
+    public int encodedSize() {
+        return headerSize(players) + events.limit();
+    }
+
+    static int headerSize(int players) {
+        return 4 + 6 + 8 + 4 * 3 + 8 * players;
+    }
+
+    /** Write this replay at out's position, advancing it by encodedSize(). */
+    public void writeTo(ByteBuffer out) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.put((byte) players);
+        out.put((byte) rows);
+        out.put((byte) columns);
+        out.put((byte) loser);
+        out.put((byte) flags);
+        out.putLong(seed);
+        out.putInt(ticks);
+        out.putInt(eventCount);
+        out.putInt(events.limit());
+        for (long h : finalHashes) {
+            out.putLong(h);
+        }
+        out.put(events.duplicate());
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer out = ByteBuffer.allocate(encodedSize());
+        writeTo(out);
+        return out.array();
+    }
+
+    /**
+     * Read a replay starting at in's position, advancing past it. The events are not copied:
+     * the replay keeps a view of in's bytes, which must not change afterwards.
+     */
+    public static Replay readFrom(ByteBuffer in) {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a replay");
+        }
+        int version = in.get();
+        if (version != VERSION && version != 1) {
+            throw new IllegalArgumentException("Unsupported replay version " + version);
+        }
+        int players = in.get();
+        int rows = in.get();
+        int columns = in.get();
+        int loser = in.get();
+        int flags = version == 1 ? 0 : in.get() & 0xFF;
+        long seed = in.getLong();
+        int ticks = in.getInt();
+        int eventCount = in.getInt();
+        int eventBytes = in.getInt();
+        long[] hashes = new long[players];
+        for (int i = 0; i < players; i++) {
+            hashes[i] = in.getLong();
+        }
+        ByteBuffer events = in.slice(in.position(), eventBytes);
+        in.position(in.position() + eventBytes);
+        return new Replay(seed, players, rows, columns, ticks, loser, flags, hashes, eventCount, events);
+    }
+
+    public static Replay fromBytes(byte[] data) {
+        return readFrom(ByteBuffer.wrap(data));
+    }
+
+    public void write(Path file) throws IOException {
+        Files.write(file, toBytes());
+    }
+
+    public static Replay read(Path file) throws IOException {
+        return fromBytes(Files.readAllBytes(file));
+    }
+}
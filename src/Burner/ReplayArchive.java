@@ -0,0 +1,299 @@
+package Burner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Many replays in one append-only file pair, read through memory maps.
+ *
+ * base.bba holds the replay records back to back, each in Replay's own encoding.
+ * base.bbi is the index: a 16-byte header, then one fixed 32-byte entry per record:
+ *   long offset, int length, int ticks, long seed, byte players, byte loser, short 0, int events.
+ * A record's id is its position in the index, so looking one up is a multiply, and filters on
+ * players, outcome or duration only touch the index. Both files are mapped read-only; get()
+ * returns a Replay whose events are a view of the mapped data, so nothing is copied.
+ *
+ * The writer appends the record first and its index entry second. A crash can leave a torn
+ * record or entry at the end; reopening the writer cuts both files back to the last whole entry.
+ */
+public final class ReplayArchive implements AutoCloseable {
+    static final int INDEX_MAGIC = 0x49424242;   // "BBBI"
+    static final int DATA_MAGIC  = 0x44424242;   // "BBBD"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 32;
+
+    // data is mapped in chunks this far apart; each map runs MAX_RECORD past its chunk so any
+    // record starting inside a chunk is wholly visible in that chunk's map
+    private static final long CHUNK = 1L << 30;
+    private static final int MAX_RECORD = 16 << 20;
+
+    private final FileChannel dataChannel;
+    private final MappedByteBuffer index;
+    private final MappedByteBuffer[] chunks;
+    private final long dataSize;
+    private final int count;
+
+    private ReplayArchive(FileChannel dataChannel, MappedByteBuffer index, long dataSize, int count) {
+        this.dataChannel = dataChannel;
+        this.index = index;
+        this.dataSize = dataSize;
+        this.count = count;
+        this.chunks = new MappedByteBuffer[(int) ((dataSize + CHUNK - 1) / CHUNK)];
+    }
+
+    /** Open an archive for reading; records appended later are not visible to it. */
+    public static ReplayArchive open(Path base) throws IOException {
+        try (FileChannel indexChannel = FileChannel.open(indexPath(base), StandardOpenOption.READ)) {
+            MappedByteBuffer index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            index.order(ByteOrder.LITTLE_ENDIAN);
+            checkHeader(index, INDEX_MAGIC);
+            int count = (index.limit() - HEADER_SIZE) / ENTRY_SIZE;
+
+            FileChannel data = FileChannel.open(dataPath(base), StandardOpenOption.READ);
+            try {
+                checkHeader(readHeader(data), DATA_MAGIC);
+                long dataSize = count == 0 ? HEADER_SIZE : entryOffset(index, count - 1) + entryLength(index, count - 1);
+                // an index ahead of its data: records were lost, or the pair doesn't belong together
+                if (dataSize < HEADER_SIZE || dataSize > data.size()) {
+                    throw new IOException("Replay archive data is shorter than its index");
+                }
+                return new ReplayArchive(data, index, dataSize, count);
+            } catch (IOException | RuntimeException e) {
+                data.close();
+                throw e;
+            }
+        }
+    }
+
+    /** Number of replays. Ids run from 0 to count - 1 in the order they were appended. */
+    public int count() { return count; }
+
+    public long getSeed(int id)      { return index.getLong(entry(id) + 16); }
+    public int getTicks(int id)      { return index.getInt(entry(id) + 12); }
+    public int getPlayerCount(int id) { return index.get(entry(id) + 24); }
+    /** Seat of the losing player, or -1 for a match stopped early. */
+    public int getLoser(int id)      { return index.get(entry(id) + 25); }
+    public int getEventCount(int id) { return index.getInt(entry(id) + 28); }
+    public int getRecordSize(int id) { return entryLength(index, id); }
+
+    /** The replay with this id, backed by the mapped file rather than a copy. */
+    public Replay get(int id) throws IOException {
+        long offset = entryOffset(index, id);
+        int length = entryLength(index, id);
+        int chunk = (int) (offset / CHUNK);
+        ByteBuffer map = chunk(chunk);
+        int at = (int) (offset - (long) chunk * CHUNK);
+        return Replay.readFrom(map.slice(at, length));
+    }
+
+    /** Visit every replay in file order: one sequential pass over the data. */
+    public void forEach(Consumer<Replay> action) throws IOException {
+        for (int id = 0; id < count; id++) {
+            action.accept(get(id));
+        }
+    }
+
+    private synchronized ByteBuffer chunk(int chunk) throws IOException {
+        MappedByteBuffer map = chunks[chunk];
+        if (map == null) {
+            long start = (long) chunk * CHUNK;
+            long size = Math.min(dataSize - start, CHUNK + MAX_RECORD);
+            map = dataChannel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            chunks[chunk] = map;
+        }
+        return map.duplicate();
+    }
+
+    private int entry(int id) {
+        if (id < 0 || id >= count) {
+            throw new IndexOutOfBoundsException("No replay " + id + " in archive of " + count);
+        }
+        return HEADER_SIZE + id * ENTRY_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataChannel.close();
+    }
+
+    static Path indexPath(Path base) { return Paths.get(base + ".bbi"); }
+    static Path dataPath(Path base)  { return Paths.get(base + ".bba"); }
+
+    private static long entryOffset(ByteBuffer index, int id) {
+        return index.getLong(HEADER_SIZE + id * ENTRY_SIZE);
+    }
+
+    private static int entryLength(ByteBuffer index, int id) {
+        return index.getInt(HEADER_SIZE + id * ENTRY_SIZE + 8);
+    }
+
+    private static void checkHeader(ByteBuffer header, int magic) throws IOException {
+        if (header.limit() < HEADER_SIZE || header.getInt(0) != magic) {
+            throw new IOException("Not a replay archive");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported replay archive version " + header.getInt(4));
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (head.hasRemaining()) {
+            if (channel.read(head, head.position()) < 0) break; // shorter than a header
+        }
+        head.flip();
+        return head;
+    }
+
+    private static ByteBuffer header(int magic) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(magic).putInt(VERSION).putInt(ENTRY_SIZE).putInt(0).flip();
+        return header;
+    }
+
+    /**
+     * Appends replays to an archive, creating it if needed. Safe to share between threads.
+     */
+    public static final class Writer implements AutoCloseable {
+        private final FileChannel data;
+        private final FileChannel index;
+        private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long dataEnd;
+        private int count;
+
+        public Writer(Path base) throws IOException {
+            data = FileChannel.open(dataPath(base), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(indexPath(base), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                recover();
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private void recover() throws IOException {
+            if (index.size() < HEADER_SIZE) {
+                index.truncate(0);
+                index.write(header(INDEX_MAGIC), 0);
+                data.truncate(0);
+                data.write(header(DATA_MAGIC), 0);
+            }
+            checkHeader(readHeader(index), INDEX_MAGIC);
+            checkHeader(readHeader(data), DATA_MAGIC);
+
+            // drop a torn index entry, then any data past the last indexed record
+            count = (int) ((index.size() - HEADER_SIZE) / ENTRY_SIZE);
+            index.truncate(HEADER_SIZE + (long) count * ENTRY_SIZE);
+            dataEnd = HEADER_SIZE;
+            if (count > 0) {
+                ByteBuffer last = ByteBuffer.allocate(ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                index.read(last, HEADER_SIZE + (long) (count - 1) * ENTRY_SIZE);
+                dataEnd = last.getLong(0) + last.getInt(8);
+            }
+            if (data.size() < dataEnd) {
+                throw new IOException("Replay archive data is shorter than its index");
+            }
+            data.truncate(dataEnd);
+        }
+
+        /** Append a replay; returns its id. */
+        public synchronized int append(Replay replay) throws IOException {
+            int length = replay.encodedSize();
+            if (length > MAX_RECORD) {
+                throw new IllegalArgumentException("Replay of " + length + " bytes is too large to archive");
+            }
+            ByteBuffer record = ByteBuffer.allocate(length);
+            replay.writeTo(record);
+            record.flip();
+            long offset = dataEnd;
+            while (record.hasRemaining()) {
+                offset += data.write(record, offset);
+            }
+
+            entry.clear();
+            entry.putLong(dataEnd)
+                 .putInt(length)
+                 .putInt(replay.getTicks())
+                 .putLong(replay.getSeed())
+                 .put((byte) replay.getPlayerCount())
+                 .put((byte) replay.getLoser())
+                 .putShort((short) 0)
+                 .putInt(replay.getEventCount());
+            entry.flip();
+            long at = HEADER_SIZE + (long) count * ENTRY_SIZE;
+            while (entry.hasRemaining()) {
+                at += index.write(entry, at);
+            }
+            dataEnd += length;
+            return count++;
+        }
+
+        public synchronized int count() {
+            return count;
+        }
+
+        /** Push appended records to disk. */
+        public synchronized void flush() throws IOException {
+            data.force(false);
+            index.force(false);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                data.close();
+            } finally {
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * Usage: ReplayArchive base [verify]
+     * Scans the whole archive and prints a summary; with "verify", also re-simulates every replay.
+     */
+    public static void main(String[] args) throws IOException {
+        Path base = Paths.get(args[0]);
+        boolean verify = args.length > 1 && args[1].equals("verify");
+        try (ReplayArchive archive = open(base)) {
+            long start = System.nanoTime();
+            long bytes = 0, ticks = 0, events = 0;
+            int timeouts = 0, diverged = 0;
+            int[] losses = new int[8];
+            for (int id = 0; id < archive.count(); id++) {
+                Replay replay = archive.get(id);
+                // touch every event so the scan really reads the data
+                Replay.Cursor cursor = replay.events();
+                while (cursor.next()) {
+                    events++;
+                }
+                bytes += archive.getRecordSize(id);
+                ticks += archive.getTicks(id);
+                int loser = archive.getLoser(id);
+                if (loser < 0) timeouts++;
+                else if (loser < losses.length) losses[loser]++;
+                if (verify && !ReplayEngine.verify(replay)) diverged++;
+            }
+            double secs = (System.nanoTime() - start) / 1e9;
+            int n = Math.max(1, archive.count());
+            System.out.printf("%d replays, %.1f MB, %d inputs, avg %.1f s; scanned in %.3f s (%.0f MB/s)%n",
+                    archive.count(), bytes / 1e6, events,
+                    (double) ticks / n / TickScheduler.TICKS_PER_SECOND, secs, bytes / 1e6 / secs);
+            System.out.printf("player 1 lost %d, player 2 lost %d, timeouts %d%n", losses[0], losses[1], timeouts);
+            if (verify) {
+                System.out.println(diverged == 0 ? "all replays match" : diverged + " replays DIVERGED");
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package Burner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Re-simulates replays headlessly, as fast as the CPU allows.
+ */
+public final class ReplayEngine {
+
+    /** Watches a replay as it is re-simulated. */
+    public interface StepListener {
+        /** Called once after the match starts and again after every step. */
+        void stepped(Match match);
+    }
+
+    private ReplayEngine() {
+    }
+
+    /** Rebuild the match from the seed and feed it the recorded inputs; returns it finished. */
+    public static Match play(Replay replay) {
+        return play(replay, null);
+    }
+
+    /** As above, calling listener (unless null) with the match after every step. */
+    public static Match play(Replay replay, StepListener listener) {
+        Match match = Match.create(replay.getPlayerCount(), replay.getRows(), replay.getColumns(),
+                replay.getSeed());
+        match.setInstantGravity(replay.isInstantGravity());
+        match.start();
+        if (listener != null) listener.stepped(match);
+        Replay.Cursor events = replay.events();
+        boolean pending = events.next();
+        while (!match.isOver() && match.getTick() < replay.getTicks()) {
+            // inputs recorded at tick t were applied at the start of step t
+            while (pending && events.tick() == match.getTick()) {
+                match.submit(events.player(), events.action());
+                pending = events.next();
+            }
+            match.step();
+            if (listener != null) listener.stepped(match);
+        }
+        return match;
+    }
+
+    /** True if re-simulating ends in the recorded state for every player. */
+    public static boolean verify(Replay replay) {
+        Match match = play(replay);
+        if (match.getTick() != replay.getTicks()) return false;
+        for (int p = 0; p < replay.getPlayerCount(); p++) {
+            if (match.getController(p).getStateHash() != replay.getFinalHash(p)) return false;
+        }
+        return true;
+    }
+
+    /** Usage: ReplayEngine file... — re-simulates each replay and reports whether it matched. */
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            Path file = Paths.get(arg);
+            Replay replay = Replay.read(file);
+            long start = System.nanoTime();
+            boolean ok = verify(replay);
+            double ms = (System.nanoTime() - start) / 1e6;
+            System.out.printf("%s: %d ticks, %d inputs in %d bytes, replayed in %.2f ms, %s%n",
+                    file, replay.getTicks(), replay.getEventCount(), replay.encodedSize(), ms,
+                    ok ? "matches" : "DIVERGED");
+        }
+    }
+}
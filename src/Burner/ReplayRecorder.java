@@ -0,0 +1,59 @@
+package Burner;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Records a match's inputs as they are applied, in Replay's event encoding.
+ * Attach it before the first step; call finish() once the match is over (or to cut it short).
+ */
+public class ReplayRecorder implements Match.InputListener {
+    private final Match match;
+    private final int players;
+
+    private byte[] buffer = new byte[1024];
+    private int size;
+    private int count;
+    private long lastTick;
+
+    private ReplayRecorder(Match match) {
+        this.match = match;
+        this.players = match.getPlayerCount();
+    }
+
+    /** Start recording a match made by Match.create (the seed is what makes it replayable). */
+    public static ReplayRecorder attach(Match match) {
+        ReplayRecorder recorder = new ReplayRecorder(match);
+        match.setInputListener(recorder);
+        return recorder;
+    }
+
+    @Override
+    public void onInput(long tick, int player, PlayerAction action) {
+        long value = (((tick - lastTick) * players + player) << Replay.ACTION_BITS) | action.ordinal();
+        lastTick = tick;
+        count++;
+        if (size + 10 > buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /** The replay so far, with the players' current state hashes as the expected result. */
+    public Replay finish() {
+        long[] hashes = new long[players];
+        for (int p = 0; p < players; p++) {
+            hashes[p] = match.getController(p).getStateHash();
+        }
+        GameGrid grid = match.getController(0).getGrid();
+        int loser = match.getLoser() == null ? -1 : match.getLoser().getPlayerIndex();
+        int flags = match.isInstantGravity() ? Replay.FLAG_INSTANT_GRAVITY : 0;
+        return new Replay(match.getSeed(), players, grid.getRows(), grid.getColumns(),
+                (int) match.getTick(), loser, flags, hashes, count,
+                ByteBuffer.wrap(Arrays.copyOf(buffer, size)));
+    }
+}
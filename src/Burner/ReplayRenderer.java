@@ -0,0 +1,278 @@
+package Burner;
+
+import Block.SpriteAtlas;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Draws replays into images without a display, for match thumbnails and highlight clips.
+ *
+ * A replay is re-simulated once on the calling thread, copying a FrameSnapshot every
+ * so many ticks. The snapshots are then drawn in parallel on a ForkJoinPool: each worker
+ * thread has its own FrameRenderer and image, so the drawing is exactly what GamePanel
+ * shows and the workers share nothing but the sprite atlas.
+ *
+ * Frames are drawn at scale times the board's natural size. A smaller scale does not
+ * resample the finished frame; like a HiDPI display it only changes the device pixels per
+ * cell, so thumbnails are drawn from pre-scaled sprites and stay sharp.
+ *
+ * Works under java.awt.headless=true.
+ */
+public class ReplayRenderer implements AutoCloseable {
+    /** Receives each rendered frame on a worker thread; the image is reused once it returns. */
+    public interface FrameSink {
+        void accept(int index, long tick, BufferedImage image) throws IOException;
+    }
+
+    // frames per task; below this the split costs more than it spreads
+    private static final int LEAF_FRAMES = 8;
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+    private double scale = 1.0;
+
+    public ReplayRenderer(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public ReplayRenderer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /** Draw frames at this multiple of the natural size; 1 is 48 px per cell. */
+    public void setScale(double scale) {
+        this.scale = scale;
+    }
+
+    /** Pixel size of the frames of a replay drawn at the current scale. */
+    public Dimension getFrameSize(Replay replay) {
+        BoardLayout layout = BoardLayout.of(replay.getPlayerCount(), replay.getRows(), replay.getColumns());
+        return scaled(new FrameRenderer().getNaturalSize(layout));
+    }
+
+    private Dimension scaled(Dimension natural) {
+        return new Dimension((int) Math.ceil(natural.width * scale), (int) Math.ceil(natural.height * scale));
+    }
+
+    /**
+     * Re-simulate a replay and copy its state at tick 0, every `every` ticks after that,
+     * and at the end.
+     */
+    public static Frames capture(Replay replay, int every) {
+        Frames frames = new Frames();
+        List<GameController> controllers = new ArrayList<>();
+        ReplayEngine.play(replay, match -> {
+            if (controllers.isEmpty()) controllers.addAll(match.getControllers());
+            boolean last = match.isOver() || match.getTick() >= replay.getTicks();
+            if (match.getTick() % every == 0 || last) {
+                frames.add(match.getTick(), controllers);
+            }
+        });
+        return frames;
+    }
+
+    /** Draw every frame in parallel, handing each image to sink. */
+    public void render(Frames frames, FrameSink sink) {
+        if (frames.size() == 0) return;
+        pool.invoke(new Batch(frames, 0, frames.size(), sink));
+    }
+
+    /** Render a replay to dir/frame_00000.png, frame_00001.png, ...; returns the frame count. */
+    public int writeFrames(Replay replay, int every, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Frames frames = capture(replay, every);
+        render(frames, (index, tick, image) ->
+                workers.get().writePng(image, dir.resolve(String.format("frame_%05d.png", index))));
+        return frames.size();
+    }
+
+    /**
+     * Render about count frames spread evenly over a replay, and write them as one PNG in a
+     * grid of the given number of columns, in order. Returns the number of frames on it.
+     */
+    public int writeContactSheet(Replay replay, int count, int columns, Path file) throws IOException {
+        int every = Math.max(1, (replay.getTicks() + count - 2) / Math.max(1, count - 1));
+        Frames frames = capture(replay, every);
+        Dimension size = getFrameSize(replay);
+        int rows = (frames.size() + columns - 1) / columns;
+        BufferedImage sheet = new BufferedImage(Math.max(1, columns * size.width), Math.max(1, rows * size.height),
+                BufferedImage.TYPE_INT_RGB);
+        render(frames, (index, tick, image) -> {
+            // tiles don't overlap; the lock only keeps Java2D's bookkeeping on the sheet sane
+            synchronized (sheet) {
+                sheet.getRaster().setDataElements(index % columns * size.width, index / columns * size.height,
+                        image.getRaster());
+            }
+        });
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        workers.get().writePng(sheet, file);
+        return frames.size();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /** Snapshots of one replay and the ticks they were taken at. */
+    public static final class Frames {
+        private final List<FrameSnapshot> snapshots = new ArrayList<>();
+        private final List<Long> ticks = new ArrayList<>();
+
+        void add(long tick, List<GameController> controllers) {
+            FrameSnapshot snapshot = new FrameSnapshot();
+            snapshot.capture(controllers, snapshots.size() + 1);
+            snapshots.add(snapshot);
+            ticks.add(tick);
+        }
+
+        public int size()                  { return snapshots.size(); }
+        public FrameSnapshot get(int i)    { return snapshots.get(i); }
+        public long getTick(int i)         { return ticks.get(i); }
+    }
+
+    /** One worker thread's renderer, frame image and PNG writer. */
+    private final class Worker {
+        private final FrameRenderer renderer = new FrameRenderer();
+        private final PngWriter png = new PngWriter();
+        private BufferedImage image;
+
+        BufferedImage draw(FrameSnapshot frame, long tick) {
+            Dimension natural = renderer.getNaturalSize(renderer.layoutFor(frame));
+            Dimension size = scaled(natural);
+            if (image == null || image.getWidth() != size.width || image.getHeight() != size.height) {
+                image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            }
+            // power-ups animate with the replay's clock, not the wall clock
+            renderer.setAnimationFrame(SpriteAtlas.frameAt(tick * TickScheduler.TICK_NANOS));
+            Graphics2D g2 = image.createGraphics();
+            try {
+                g2.scale(scale, scale);
+                renderer.paint(g2, frame, natural.width, natural.height, null);
+            } finally {
+                g2.dispose();
+            }
+            return image;
+        }
+
+        void writePng(BufferedImage image, Path file) throws IOException {
+            png.write(image, file);
+        }
+    }
+
+    private final class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Frames frames;
+        private final int from, to;
+        private final FrameSink sink;
+
+        Batch(Frames frames, int from, int to, FrameSink sink) {
+            this.frames = frames;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_FRAMES) {
+                Worker worker = workers.get();
+                for (int i = from; i < to; i++) {
+                    try {
+                        sink.accept(i, frames.getTick(i), worker.draw(frames.get(i), frames.getTick(i)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Batch(frames, from, mid, sink),
+                      new Batch(frames, mid, to, sink));
+        }
+    }
+
+    /**
+     * Usage: ReplayRenderer [-every ticks] [-threads n] [-scale s] [-frames dir] [-sheet dir]
+     *                       [-thumbs n] [-columns n] replay.bbr|archive...
+     * Writes each replay's frames to dir/seed/ and/or a contact sheet to dir/seed.png, where
+     * seed is the replay seed in hex. An archive base renders every replay in it. With neither
+     * -frames nor -sheet, only draws the frames and reports the rate.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int every = 1, threads = Runtime.getRuntime().availableProcessors(), thumbs = 48, columns = 8;
+        double scale = 1.0;
+        Path framesDir = null, sheetDir = null;
+        List<Replay> replays = new ArrayList<>();
+        List<ReplayArchive> archives = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-every":   every = Integer.parseInt(args[++i]); break;
+                    case "-threads": threads = Integer.parseInt(args[++i]); break;
+                    case "-scale":   scale = Double.parseDouble(args[++i]); break;
+                    case "-frames":  framesDir = Paths.get(args[++i]); break;
+                    case "-sheet":   sheetDir = Paths.get(args[++i]); break;
+                    case "-thumbs":  thumbs = Integer.parseInt(args[++i]); break;
+                    case "-columns": columns = Integer.parseInt(args[++i]); break;
+                    default:
+                        Path path = Paths.get(args[i]);
+                        if (Files.isRegularFile(path)) {
+                            replays.add(Replay.read(path));
+                        } else {
+                            ReplayArchive archive = ReplayArchive.open(path);
+                            archives.add(archive);
+                            for (int id = 0; id < archive.count(); id++) {
+                                replays.add(archive.get(id));
+                            }
+                        }
+                }
+            }
+
+            try (ReplayRenderer renderer = new ReplayRenderer(threads)) {
+                renderer.setScale(scale);
+                long frames = 0;
+                long start = System.nanoTime();
+                for (Replay replay : replays) {
+                    String name = Long.toHexString(replay.getSeed());
+                    if (framesDir != null) {
+                        frames += renderer.writeFrames(replay, every, framesDir.resolve(name));
+                    }
+                    if (sheetDir != null) {
+                        frames += renderer.writeContactSheet(replay, thumbs, columns, sheetDir.resolve(name + ".png"));
+                    }
+                    if (framesDir == null && sheetDir == null) {
+                        Frames captured = capture(replay, every);
+                        renderer.render(captured, (index, tick, image) -> { });
+                        frames += captured.size();
+                    }
+                }
+                double secs = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%d replays, %d frames at scale %.2f on %d threads in %.2f s: %.0f frames/s%n",
+                        replays.size(), frames, scale, renderer.getParallelism(),
+                        secs, frames / secs);
+            }
+        } finally {
+            for (ReplayArchive archive : archives) {
+                archive.close();
+            }
+        }
+    }
+}
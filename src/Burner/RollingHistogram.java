@@ -0,0 +1,77 @@
+package Burner;
+
+/**
+ * Counts of the last WINDOW values in power-of-two buckets, for the performance HUD.
+ *
+ * Bucket 0 holds values below unit, bucket b values from unit * 2^(b-1) up to unit * 2^b,
+ * and the last bucket everything above. The window is a ring of the raw values, so the
+ * oldest one leaves its bucket as a new one arrives. Everything is allocated up front;
+ * recording and reading never allocate. Safe to record and read from different threads.
+ */
+public final class RollingHistogram {
+    private final long unit;
+    private final long[] window;
+    private final int[] counts;
+    private int next;
+    private int size;
+
+    public RollingHistogram(int windowSize, int buckets, long unit) {
+        this.unit = unit;
+        this.window = new long[windowSize];
+        this.counts = new int[buckets];
+    }
+
+    public synchronized void record(long value) {
+        if (size == window.length) {
+            counts[bucketOf(window[next])]--;
+        } else {
+            size++;
+        }
+        window[next] = value;
+        counts[bucketOf(value)]++;
+        next = (next + 1) % window.length;
+    }
+
+    public int bucketOf(long value) {
+        long units = Math.max(0, value) / unit;
+        int bucket = units == 0 ? 0 : 64 - Long.numberOfLeadingZeros(units);
+        return Math.min(bucket, counts.length - 1);
+    }
+
+    /** Lower bound of a bucket. */
+    public long bucketStart(int bucket) {
+        return bucket == 0 ? 0 : unit << (bucket - 1);
+    }
+
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    /** Copy the bucket counts into into (at least getBucketCount() long); returns the largest. */
+    public synchronized int copyCounts(int[] into) {
+        int max = 0;
+        for (int b = 0; b < counts.length; b++) {
+            into[b] = counts[b];
+            max = Math.max(max, counts[b]);
+        }
+        return max;
+    }
+
+    /** The most recent value, or 0 before the first. */
+    public synchronized long getLatest() {
+        return size == 0 ? 0 : window[(next + window.length - 1) % window.length];
+    }
+
+    /** The largest value in the window. */
+    public synchronized long getMax() {
+        long max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, window[i]);
+        }
+        return max;
+    }
+
+    public synchronized int getSampleCount() {
+        return size;
+    }
+}
@@ -0,0 +1,43 @@
+package Burner;
+
+import java.util.Arrays;
+
+/**
+ * What one instant settle did: how many clear steps the chain ran, how many cells each
+ * step cleared, and how many power-ups were banked. GameLogic reuses one instance, so
+ * read it before the next settle.
+ */
+public final class SettleResult {
+    private int[] clearedPerStep = new int[8];
+    private int chainDepth;
+    private int totalCleared;
+    private int powerUpsBanked;
+
+    void reset() {
+        chainDepth = 0;
+        totalCleared = 0;
+        powerUpsBanked = 0;
+    }
+
+    void addStep(int cleared, int banked) {
+        if (chainDepth == clearedPerStep.length) {
+            clearedPerStep = Arrays.copyOf(clearedPerStep, chainDepth * 2);
+        }
+        clearedPerStep[chainDepth++] = cleared;
+        totalCleared += cleared;
+        powerUpsBanked += banked;
+    }
+
+    /** Clear steps in the chain; 0 if nothing cleared, 2 or more for a cascade. */
+    public int getChainDepth()      { return chainDepth; }
+    /** Matched cells removed in step 0..chainDepth-1. */
+    public int getClearedAt(int step) {
+        if (step < 0 || step >= chainDepth) {
+            throw new IndexOutOfBoundsException("Step " + step + " of " + chainDepth);
+        }
+        return clearedPerStep[step];
+    }
+    public int getTotalCleared()    { return totalCleared; }
+    /** Power-ups that reached the inventory (ones cleared while it was full are lost). */
+    public int getPowerUpsBanked()  { return powerUpsBanked; }
+}
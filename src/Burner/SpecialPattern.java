@@ -0,0 +1,66 @@
+package Burner;
+
+import java.util.List;
+
+/**
+ * A sequence of block types laid along a row, column or diagonal.
+ * When every cell of the sequence holds the right type, the whole sequence is cleared
+ * and the pattern's effect fires.
+ *
+ * Anchors say where the first cell may sit: {@link #ANY} lets the pattern start anywhere it
+ * fits, a negative value counts back from the last row or column (-1 is the bottom row).
+ */
+public final class SpecialPattern {
+    public static final int ANY = Integer.MIN_VALUE;
+
+    public enum Effect {
+        CLEAR_ONLY,
+        START_PENALTY      // send penalty blocks now and on the next spawns
+    }
+
+    /** BURNER along a row (either spelling), the bottom-left diagonal sequence. */
+    public static final List<SpecialPattern> DEFAULTS = List.of(
+            new SpecialPattern("BURNER", new int[]{0, 1, 5, 3, 4, 2}, 0, 1, ANY, 0, Effect.START_PENALTY),
+            new SpecialPattern("BURNER", new int[]{0, 1, 2, 3, 4, 5}, 0, 1, ANY, 0, Effect.START_PENALTY),
+            new SpecialPattern("DIAGONAL", new int[]{0, 1, 2, 3, 4, 5}, -1, 1, -1, 0, Effect.CLEAR_ONLY)
+    );
+
+    private final String name;
+    private final int[] types;
+    private final int dRow, dCol;
+    private final int anchorRow, anchorCol;
+    private final Effect effect;
+
+    /**
+     * @param types     typeIndex required at each step of the sequence
+     * @param dRow      row step between cells (-1, 0 or 1)
+     * @param dCol      column step between cells (-1, 0 or 1)
+     * @param anchorRow row of the first cell, or ANY
+     * @param anchorCol column of the first cell, or ANY
+     */
+    public SpecialPattern(String name, int[] types, int dRow, int dCol,
+                          int anchorRow, int anchorCol, Effect effect) {
+        if (types.length == 0) {
+            throw new IllegalArgumentException("Empty pattern: " + name);
+        }
+        if (Math.abs(dRow) > 1 || Math.abs(dCol) > 1 || (dRow == 0 && dCol == 0)) {
+            throw new IllegalArgumentException("Invalid pattern direction: " + name);
+        }
+        this.name = name;
+        this.types = types.clone();
+        this.dRow = dRow;
+        this.dCol = dCol;
+        this.anchorRow = anchorRow;
+        this.anchorCol = anchorCol;
+        this.effect = effect;
+    }
+
+    public String getName()   { return name; }
+    public int    getLength() { return types.length; }
+    public int    getType(int i) { return types[i]; }
+    public int    getRowStep() { return dRow; }
+    public int    getColumnStep() { return dCol; }
+    public int    getAnchorRow() { return anchorRow; }
+    public int    getAnchorColumn() { return anchorCol; }
+    public Effect getEffect() { return effect; }
+}
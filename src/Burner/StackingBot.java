@@ -0,0 +1,77 @@
+package Burner;
+
+import Block.Block;
+
+import java.util.SplittableRandom;
+
+/**
+ * A simple strategy bot: fires stored power-ups as soon as it has them, and steers each
+ * new piece to the lowest column (ties broken at random), cycling it a random number of
+ * times on the way, then hard-drops. Good enough to produce long, power-up heavy matches
+ * for balance runs.
+ */
+public class StackingBot implements Bot {
+    // ticks to wait between inputs, so play looks like a fast human rather than a burst
+    private static final int INPUT_DELAY_TICKS = 4;
+    // give up steering after this many inputs on one piece (e.g. a blocked path) and drop
+    private static final int MAX_INPUTS_PER_PIECE = 12;
+
+    private final SplittableRandom random;
+
+    private Block piece;
+    private int targetColumn;
+    private int cyclesLeft;
+    private int inputsOnPiece;
+    private int cooldown;
+
+    public StackingBot(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public PlayerAction nextAction(Match match, int player) {
+        if (cooldown > 0) {
+            cooldown--;
+            return null;
+        }
+        GameController self = match.getController(player);
+        Block current = self.getCurrentBlock();
+        if (current == null) return null;
+
+        if (current != piece) {
+            piece = current;
+            targetColumn = lowestColumn(self.getGrid());
+            cyclesLeft = random.nextInt(3);
+            inputsOnPiece = 0;
+        }
+        cooldown = INPUT_DELAY_TICKS;
+        inputsOnPiece++;
+
+        if (self.getPowerUpInventory().size() > 0) return PlayerAction.POWER_UP;
+        if (inputsOnPiece > MAX_INPUTS_PER_PIECE) return PlayerAction.DROP;
+        if (cyclesLeft > 0) {
+            cyclesLeft--;
+            return PlayerAction.CYCLE;
+        }
+        if (current.getX() < targetColumn) return PlayerAction.MOVE_RIGHT;
+        if (current.getX() > targetColumn) return PlayerAction.MOVE_LEFT;
+        return PlayerAction.DROP;
+    }
+
+    private int lowestColumn(GameGrid grid) {
+        int best = 0;
+        int bestHeight = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int c = 0; c < grid.getColumns(); c++) {
+            int h = grid.columnHeight(c);
+            if (h < bestHeight) {
+                best = c;
+                bestHeight = h;
+                ties = 1;
+            } else if (h == bestHeight && random.nextInt(++ties) == 0) {
+                best = c;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,569 @@
+package Burner;
+
+import Block.Block;
+import Block.CellCode;
+import Block.PowerUpInventory;
+import Block.SmallBlock;
+import Block.Zobrist;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact wire format for the visible state of a match, for clients that draw it rather than
+ * simulate it: each player's grid cells, falling piece, next piece and stored power-ups.
+ *
+ * Every tick the Encoder sends only what changed since the last tick, and every
+ * keyframeTicks it sends a keyframe: everything, as changes from an empty board. A Decoder
+ * ignores deltas until its first keyframe, so a client can start listening at any tick and
+ * is in sync within keyframeTicks.
+ *
+ * A delta is empty if nothing changed. Otherwise it is a byte with bit p set for each changed
+ * player, then their sections in a stream of 4-bit nibbles, high nibble first, the last byte
+ * padded with 0. A keyframe has no mask byte and a section for every player. A section is
+ * two nibbles of flags, low first: two bits for the falling piece's position, three for its
+ * cells, then CELLS, NEXT and STORED. The parts they call for follow in this order:
+ *   PROMOTED  the old piece landed and the next piece became the falling one; no data
+ *   GONE      the old piece landed and none is falling yet; its position reads as 0, 0
+ *   CELLS     the grid, as below
+ *   CYCLED    the piece's cells rotated once, as Block.cycleColors; no data
+ *   SET       the piece is these cells: count nibble, then their codes
+ *   DOWN      the piece moved down one row; no data
+ *   MOVED     the piece is at column, row (two nibble varints)
+ *   NEXT      the next piece: count nibble, then its cell codes
+ *   STORED    power-ups: count dropped from the front, count appended, their ordinals
+ * Pieces are sent as their top cell plus codes, since every Block keeps its default vertical
+ * layout. A landed piece is predicted rather than sent: both ends drop the old piece down its
+ * column onto the first filled cell, and CELLS then only carries what differs from that.
+ * Nibble varints hold 3 bits per nibble, low group first, 8 meaning more follow.
+ *
+ * Cells are walked column by column, top to bottom, which keeps a landed piece or a settling
+ * column together. Each cell code is one nibble: 0 empty, 1-6 small blocks, 7-9 Midas,
+ * 10-12 Medusa, or 13 followed by a power-up ordinal. Runs use the other two:
+ *   14 n code   the next n + 3 cells are code
+ *   15 n        the next n cells are unchanged; 15 0 ends the grid
+ * A tick in which a piece only falls costs two bytes of payload, and one in which a piece
+ * lands and the next spawns about six; MatchServer adds a type byte and a length varint.
+ */
+public final class StateSync {
+    /** Ticks between keyframes: two seconds. */
+    public static final int DEFAULT_KEYFRAME_TICKS = 2 * TickScheduler.TICKS_PER_SECOND;
+
+    // section flags: the piece's position in bits 0-1, its cells in bits 2-4
+    static final int POSITION = 3;
+    static final int DOWN     = 1;
+    static final int MOVED    = 2;
+    static final int PIECE    = 7 << 2;
+    static final int CYCLED   = 1 << 2;
+    static final int PROMOTED = 2 << 2;
+    static final int SET      = 3 << 2;
+    static final int GONE     = 4 << 2;
+    static final int CELLS    = 32;
+    static final int NEXT     = 64;
+    static final int STORED   = 128;
+
+    // cell stream nibbles past the cell codes
+    private static final int POWER_UP_CODE = 13;
+    private static final int RUN  = 14;
+    private static final int SKIP = 15;
+    private static final int MIN_RUN = 3;
+
+    // first nibble of each block kind; SmallBlock, MidasBlock and MedusaBlock have 6, 3 and 3 types
+    private static final int SMALL_BASE  = 1;
+    private static final int MIDAS_BASE  = SMALL_BASE + SmallBlock.TYPE_COUNT;
+    private static final int MEDUSA_BASE = MIDAS_BASE + 3;
+
+    // a piece's cell count is sent in one nibble
+    private static final int MAX_PIECE = 15;
+
+    private StateSync() {
+    }
+
+    /** The largest payload for a match of this size, for sizing buffers. */
+    public static int maxPayload(int players, int rows, int columns) {
+        // two nibbles per cell at worst, plus flags, positions, pieces and power-ups
+        return 1 + players * (rows * columns + 8 + 2 * MAX_PIECE + PowerUpInventory.MAX_STORED + 8);
+    }
+
+    /** One player's state as the wire format sees it. */
+    public static final class PlayerState {
+        private final int rows;
+        private final int columns;
+        private final byte[] cells;  // CellCodes by row, as GameGrid
+        private int pieceCount;
+        private final byte[] pieceCodes = new byte[MAX_PIECE];
+        private int pieceRow, pieceColumn;
+        private int nextCount;
+        private final byte[] nextCodes = new byte[MAX_PIECE];
+        private int storedCount;
+        private final byte[] storedCodes = new byte[PowerUpInventory.MAX_STORED];
+
+        PlayerState(int rows, int columns) {
+            this.rows = rows;
+            this.columns = columns;
+            this.cells = new byte[rows * columns];
+        }
+
+        void capture(GameController controller) {
+            controller.getGrid().copyCells(cells);
+            Block piece = controller.getCurrentBlock();
+            pieceCount = piece == null ? 0 : copyCodes(piece, pieceCodes);
+            pieceRow = piece == null ? 0 : piece.getY();
+            pieceColumn = piece == null ? 0 : piece.getX();
+            Block next = controller.getNextBlock();
+            nextCount = next == null ? 0 : copyCodes(next, nextCodes);
+            storedCount = controller.getPowerUpInventory().copyCodes(storedCodes);
+        }
+
+        private static int copyCodes(Block block, byte[] out) {
+            SmallBlock[] blocks = block.getSmallBlocks();
+            if (blocks.length > MAX_PIECE) {
+                throw new IllegalStateException("Pieces of " + blocks.length + " cells can't be synced");
+            }
+            for (int i = 0; i < blocks.length; i++) {
+                out[i] = blocks[i].getCode();
+            }
+            return blocks.length;
+        }
+
+        void clear() {
+            Arrays.fill(cells, CellCode.EMPTY);
+            pieceCount = pieceRow = pieceColumn = nextCount = storedCount = 0;
+        }
+
+        /** The same Zobrist fingerprint GameController.getStateHash gives for this state. */
+        public long getStateHash() {
+            long h = 0L;
+            for (int i = 0; i < cells.length; i++) {
+                h ^= Zobrist.cellKey(i, cells[i]);
+            }
+            for (int i = 0; i < pieceCount; i++) {
+                h ^= Zobrist.pieceKey(i, pieceCodes[i], pieceRow + i, pieceColumn);
+            }
+            for (int i = 0; i < nextCount; i++) {
+                h ^= Zobrist.nextPieceKey(i, nextCodes[i]);
+            }
+            for (int i = 0; i < storedCount; i++) {
+                h ^= Zobrist.storedKey(i, storedCodes[i]);
+            }
+            return h;
+        }
+
+        public int getRows()               { return rows; }
+        public int getColumns()            { return columns; }
+        public byte getCell(int row, int col) { return cells[row * columns + col]; }
+        /** Cells in the falling piece, top first; 0 if none is falling. */
+        public int getPieceCount()         { return pieceCount; }
+        public byte getPieceCode(int i)    { return pieceCodes[i]; }
+        /** Grid row of the piece's top cell. */
+        public int getPieceRow()           { return pieceRow; }
+        public int getPieceColumn()        { return pieceColumn; }
+        public int getNextCount()          { return nextCount; }
+        public byte getNextCode(int i)     { return nextCodes[i]; }
+        public int getStoredCount()        { return storedCount; }
+        public byte getStoredCode(int i)   { return storedCodes[i]; }
+    }
+
+    /** Encodes the state of one match, tick by tick. Not thread-safe. */
+    public static final class Encoder {
+        private final PlayerState[] sent;
+        private PlayerState current;
+        // the grid the decoder has once it lands the old piece, what CELLS is a change from
+        private final byte[] predicted;
+        private final int[] order;
+        private final int keyframeTicks;
+        private final Nibbles out = new Nibbles();
+        private long frames;
+
+        public Encoder(int players, int rows, int columns, int keyframeTicks) {
+            this.sent = new PlayerState[players];
+            for (int p = 0; p < players; p++) {
+                sent[p] = new PlayerState(rows, columns);
+            }
+            this.current = new PlayerState(rows, columns);
+            this.predicted = new byte[rows * columns];
+            this.order = columnOrder(rows, columns);
+            this.keyframeTicks = keyframeTicks;
+        }
+
+        /** Send a keyframe next, e.g. because a client joined. */
+        public void requestKeyframe() {
+            frames = 0;
+        }
+
+        /**
+         * Write the change since the last call (or a keyframe) at buffer's position.
+         * @return true if it wrote a keyframe
+         */
+        public boolean encode(List<GameController> controllers, ByteBuffer buffer) {
+            boolean keyframe = frames++ % keyframeTicks == 0;
+            int start = buffer.position();
+            if (!keyframe) buffer.put((byte) 0); // mask, filled in below
+            out.start(buffer);
+            int mask = 0;
+            for (int p = 0; p < sent.length; p++) {
+                PlayerState before = sent[p];
+                current.capture(controllers.get(p));
+                if (keyframe) before.clear();
+                int flags = diff(before, current);
+                if (flags != 0 || keyframe) {
+                    mask |= 1 << p;
+                    writeSection(flags, before, current);
+                }
+                sent[p] = current;
+                current = before;
+            }
+            out.finish();
+            if (!keyframe) {
+                if (mask == 0) buffer.position(start);
+                else buffer.put(start, (byte) mask);
+            }
+            return keyframe;
+        }
+
+        private int diff(PlayerState before, PlayerState now) {
+            int flags = 0;
+            if (now.pieceCount == 0) {
+                if (before.pieceCount != 0) flags |= GONE;
+            } else if (!sameCodes(before.pieceCodes, before.pieceCount, now.pieceCodes, now.pieceCount)) {
+                if (isCycled(before, now)) {
+                    flags |= CYCLED;
+                } else if (sameCodes(before.nextCodes, before.nextCount, now.pieceCodes, now.pieceCount)) {
+                    flags |= PROMOTED;
+                } else {
+                    flags |= SET;
+                }
+            }
+
+            System.arraycopy(before.cells, 0, predicted, 0, predicted.length);
+            int piece = flags & PIECE;
+            if (piece == PROMOTED || piece == GONE) land(before, predicted);
+            if (!Arrays.equals(predicted, now.cells)) flags |= CELLS;
+
+            if (now.pieceCount != 0) {
+                if (now.pieceColumn == before.pieceColumn && now.pieceRow == before.pieceRow + 1) {
+                    flags |= DOWN;
+                } else if (now.pieceColumn != before.pieceColumn || now.pieceRow != before.pieceRow) {
+                    flags |= MOVED;
+                }
+            }
+            if (!sameCodes(before.nextCodes, before.nextCount, now.nextCodes, now.nextCount)) flags |= NEXT;
+            if (!sameCodes(before.storedCodes, before.storedCount, now.storedCodes, now.storedCount)) flags |= STORED;
+            return flags;
+        }
+
+        private static boolean sameCodes(byte[] a, int aCount, byte[] b, int bCount) {
+            if (aCount != bCount) return false;
+            for (int i = 0; i < aCount; i++) {
+                if (a[i] != b[i]) return false;
+            }
+            return true;
+        }
+
+        private static boolean isCycled(PlayerState before, PlayerState now) {
+            int n = now.pieceCount;
+            if (before.pieceCount != n) return false;
+            for (int i = 0; i < n; i++) {
+                if (now.pieceCodes[i] != before.pieceCodes[(i + 1) % n]) return false;
+            }
+            return true;
+        }
+
+        private void writeSection(int flags, PlayerState before, PlayerState now) {
+            out.put(flags & 0x0F);
+            out.put(flags >>> 4);
+            if ((flags & CELLS) != 0) writeCells(predicted, now.cells);
+            if ((flags & PIECE) == SET) writeCodes(now.pieceCodes, now.pieceCount);
+            if ((flags & POSITION) == MOVED) {
+                out.putVarint(now.pieceColumn);
+                out.putVarint(now.pieceRow);
+            }
+            if ((flags & NEXT) != 0) writeCodes(now.nextCodes, now.nextCount);
+            if ((flags & STORED) != 0) writeStored(before, now);
+        }
+
+        private void writeCells(byte[] before, byte[] now) {
+            int skip = 0;
+            for (int k = 0; k < order.length; ) {
+                byte code = now[order[k]];
+                if (code == before[order[k]]) {
+                    skip++;
+                    k++;
+                    continue;
+                }
+                if (skip > 0) {
+                    out.put(SKIP);
+                    out.putVarint(skip);
+                    skip = 0;
+                }
+                int run = 1;
+                while (k + run < order.length && now[order[k + run]] == code) {
+                    run++;
+                }
+                if (run >= MIN_RUN) {
+                    out.put(RUN);
+                    out.putVarint(run - MIN_RUN);
+                    writeCode(code);
+                    k += run;
+                } else {
+                    writeCode(code);
+                    k++;
+                }
+            }
+            out.put(SKIP);
+            out.put(0);
+        }
+
+        private void writeCodes(byte[] codes, int count) {
+            out.put(count);
+            for (int i = 0; i < count; i++) {
+                writeCode(codes[i]);
+            }
+        }
+
+        /** Power-ups are only ever used from the front and added at the back. */
+        private void writeStored(PlayerState before, PlayerState now) {
+            int dropped = 0;
+            while (!isPrefix(before.storedCodes, dropped, before.storedCount, now)) {
+                dropped++;
+            }
+            int kept = before.storedCount - dropped;
+            out.put(dropped);
+            out.put(now.storedCount - kept);
+            for (int i = kept; i < now.storedCount; i++) {
+                out.put(CellCode.index(now.storedCodes[i]));
+            }
+        }
+
+        private static boolean isPrefix(byte[] codes, int from, int to, PlayerState now) {
+            if (to - from > now.storedCount) return false;
+            for (int i = from; i < to; i++) {
+                if (codes[i] != now.storedCodes[i - from]) return false;
+            }
+            return true;
+        }
+
+        private void writeCode(byte code) {
+            int index = CellCode.index(code);
+            switch (CellCode.kind(code)) {
+                case CellCode.KIND_EMPTY:    out.put(0); break;
+                case CellCode.KIND_SMALL:    out.put(SMALL_BASE + index); break;
+                case CellCode.KIND_MIDAS:    out.put(MIDAS_BASE + index); break;
+                case CellCode.KIND_MEDUSA:   out.put(MEDUSA_BASE + index); break;
+                case CellCode.KIND_POWER_UP: out.put(POWER_UP_CODE); out.put(index); break;
+                default: throw new IllegalArgumentException("No wire code for cell " + code);
+            }
+        }
+    }
+
+    /** Rebuilds a match's state from an Encoder's output. Not thread-safe. */
+    public static final class Decoder {
+        private final PlayerState[] players;
+        private final int[] order;
+        private final Nibbles in = new Nibbles();
+        private boolean synced;
+
+        public Decoder(int players, int rows, int columns) {
+            this.players = new PlayerState[players];
+            for (int p = 0; p < players; p++) {
+                this.players[p] = new PlayerState(rows, columns);
+            }
+            this.order = columnOrder(rows, columns);
+        }
+
+        /**
+         * Apply one payload (all of buffer's remaining bytes). Deltas that arrive before the
+         * first keyframe are skipped.
+         * @return whether the state is now in sync
+         */
+        public boolean decode(ByteBuffer payload, boolean keyframe) {
+            if (keyframe) {
+                synced = true;
+                in.start(payload);
+                for (PlayerState player : players) {
+                    player.clear();
+                    readSection(player);
+                }
+            } else if (synced && payload.hasRemaining()) {
+                int mask = payload.get() & 0xFF;
+                in.start(payload);
+                for (int p = 0; p < players.length; p++) {
+                    if ((mask & (1 << p)) != 0) readSection(players[p]);
+                }
+            }
+            return synced;
+        }
+
+        /** Forget the state until the next keyframe. */
+        public void reset() {
+            synced = false;
+        }
+
+        public boolean isSynced()              { return synced; }
+        public int getPlayerCount()            { return players.length; }
+        public PlayerState getPlayer(int p)    { return players[p]; }
+
+        private void readSection(PlayerState player) {
+            int flags = in.get() | in.get() << 4;
+            int piece = flags & PIECE;
+            if (piece == PROMOTED || piece == GONE) {
+                land(player, player.cells);
+                if (piece == PROMOTED) {
+                    System.arraycopy(player.nextCodes, 0, player.pieceCodes, 0, player.nextCount);
+                    player.pieceCount = player.nextCount;
+                } else {
+                    player.pieceCount = player.pieceRow = player.pieceColumn = 0;
+                }
+            }
+            if ((flags & CELLS) != 0) readCells(player.cells);
+            if (piece == CYCLED) {
+                byte first = player.pieceCodes[0];
+                System.arraycopy(player.pieceCodes, 1, player.pieceCodes, 0, player.pieceCount - 1);
+                player.pieceCodes[player.pieceCount - 1] = first;
+            } else if (piece == SET) {
+                player.pieceCount = readCodes(player.pieceCodes);
+            }
+            if ((flags & POSITION) == DOWN) {
+                player.pieceRow++;
+            } else if ((flags & POSITION) == MOVED) {
+                player.pieceColumn = in.getVarint();
+                player.pieceRow = in.getVarint();
+            }
+            if ((flags & NEXT) != 0) player.nextCount = readCodes(player.nextCodes);
+            if ((flags & STORED) != 0) readStored(player);
+        }
+
+        private void readCells(byte[] cells) {
+            int k = 0;
+            while (true) {
+                int nibble = in.get();
+                if (nibble == SKIP) {
+                    int skip = in.getVarint();
+                    if (skip == 0) break;
+                    k += skip;
+                } else if (nibble == RUN) {
+                    int end = k + in.getVarint() + MIN_RUN;
+                    byte code = readCode(in.get());
+                    if (end > order.length) throw new IllegalArgumentException("Corrupt state sync: run past the grid");
+                    for (; k < end; k++) {
+                        cells[order[k]] = code;
+                    }
+                } else {
+                    if (k >= order.length) throw new IllegalArgumentException("Corrupt state sync: cell past the grid");
+                    cells[order[k++]] = readCode(nibble);
+                }
+            }
+        }
+
+        private int readCodes(byte[] codes) {
+            int count = in.get();
+            for (int i = 0; i < count; i++) {
+                codes[i] = readCode(in.get());
+            }
+            return count;
+        }
+
+        private void readStored(PlayerState player) {
+            int dropped = in.get();
+            int added = in.get();
+            int kept = player.storedCount - dropped;
+            if (kept < 0 || kept + added > player.storedCodes.length) {
+                throw new IllegalArgumentException("Corrupt state sync: bad power-up change");
+            }
+            System.arraycopy(player.storedCodes, dropped, player.storedCodes, 0, kept);
+            for (int i = 0; i < added; i++) {
+                player.storedCodes[kept + i] = CellCode.pack(CellCode.KIND_POWER_UP, in.get());
+            }
+            player.storedCount = kept + added;
+        }
+
+        private byte readCode(int nibble) {
+            if (nibble == 0)               return CellCode.EMPTY;
+            if (nibble < MIDAS_BASE)       return CellCode.pack(CellCode.KIND_SMALL, nibble - SMALL_BASE);
+            if (nibble < MEDUSA_BASE)      return CellCode.pack(CellCode.KIND_MIDAS, nibble - MIDAS_BASE);
+            if (nibble < POWER_UP_CODE)    return CellCode.pack(CellCode.KIND_MEDUSA, nibble - MEDUSA_BASE);
+            if (nibble == POWER_UP_CODE)   return CellCode.pack(CellCode.KIND_POWER_UP, in.get());
+            throw new IllegalArgumentException("Corrupt state sync: cell code " + nibble);
+        }
+    }
+
+    /**
+     * Drop a player's falling piece down its column onto the first filled cell (or the floor)
+     * and write its cells there: where it most likely locked, as both ends can work out.
+     */
+    private static void land(PlayerState player, byte[] cells) {
+        int column = player.pieceColumn;
+        int count = player.pieceCount;
+        if (count == 0 || column < 0 || column >= player.columns) return;
+        int floor = Math.max(0, player.pieceRow + count);
+        while (floor < player.rows && cells[floor * player.columns + column] == CellCode.EMPTY) {
+            floor++;
+        }
+        for (int i = 0; i < count; i++) {
+            int row = floor - count + i;
+            if (row >= 0 && row < player.rows) cells[row * player.columns + column] = player.pieceCodes[i];
+        }
+    }
+
+    /** Cell indices (by row, as GameGrid) in column-by-column order. */
+    private static int[] columnOrder(int rows, int columns) {
+        int[] order = new int[rows * columns];
+        for (int k = 0; k < order.length; k++) {
+            order[k] = (k % rows) * columns + k / rows;
+        }
+        return order;
+    }
+
+    /** Reads or writes a ByteBuffer a nibble at a time, high nibble first. */
+    private static final class Nibbles {
+        private ByteBuffer buffer;
+        private int half = -1;   // the byte whose low nibble is still to come, or -1
+
+        void start(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.half = -1;
+        }
+
+        void put(int nibble) {
+            if (half < 0) {
+                half = nibble << 4;
+            } else {
+                buffer.put((byte) (half | nibble));
+                half = -1;
+            }
+        }
+
+        void putVarint(int value) {
+            while (value >= 8) {
+                put(8 | (value & 7));
+                value >>>= 3;
+            }
+            put(value);
+        }
+
+        /** Write out a pending half byte, padded with 0. */
+        void finish() {
+            if (half >= 0) put(0);
+        }
+
+        int get() {
+            if (half < 0) {
+                half = buffer.get() & 0xFF;
+                return half >>> 4;
+            }
+            int nibble = half & 0x0F;
+            half = -1;
+            return nibble;
+        }
+
+        int getVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 3) {
+                int nibble = get();
+                value |= (nibble & 7) << shift;
+                if (nibble < 8) return value;
+            }
+        }
+    }
+}
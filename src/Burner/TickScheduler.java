@@ -0,0 +1,91 @@
+package Burner;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a Match in real time from one fixed-timestep loop on its own thread.
+ *
+ * Each tick advances all of the match's controllers in order: queued input, piece descent,
+ * gravity animation and the match clock. Time is measured with System.nanoTime and
+ * consumed in whole ticks, so drop speed doesn't depend on how late the thread woke up.
+ * After a stall the loop runs the missed ticks back to back (up to MAX_CATCH_UP_TICKS),
+ * then publishes a single frame.
+ */
+public class TickScheduler implements Runnable {
+    public static final int    TICKS_PER_SECOND = 60;
+    public static final long   TICK_NANOS       = 1_000_000_000L / TICKS_PER_SECOND;
+    public static final double TICK_MS          = 1000.0 / TICKS_PER_SECOND;
+
+    // Beyond this many ticks behind, the rest of the backlog is dropped instead of replayed
+    private static final int MAX_CATCH_UP_TICKS = 30;
+
+    private final Match match;
+    private final Runnable frameCallback;
+
+    private volatile boolean running;
+    private Thread thread;
+    private long tickCount;
+
+    /**
+     * @param match         stepped once per tick
+     * @param frameCallback run on the tick thread after each batch of ticks, e.g. GamePanel::publishFrame
+     */
+    public TickScheduler(Match match, Runnable frameCallback) {
+        this.match = match;
+        this.frameCallback = frameCallback;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "game-tick");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    /** Ticks run so far. */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /** Advance the match by exactly one tick. */
+    public void step() {
+        match.step();
+        tickCount++;
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long lag = 0;
+        while (running) {
+            long now = System.nanoTime();
+            lag += now - previous;
+            previous = now;
+
+            int steps = 0;
+            while (lag >= TICK_NANOS && steps < MAX_CATCH_UP_TICKS) {
+                step();
+                lag -= TICK_NANOS;
+                steps++;
+            }
+            if (lag >= TICK_NANOS) {
+                lag = 0; // too far behind to catch up; resume from now
+            }
+
+            if (steps > 0) {
+                frameCallback.run();
+                if (match.isOver()) {
+                    running = false;
+                    break;
+                }
+            }
+
+            LockSupport.parkNanos(TICK_NANOS - lag);
+        }
+    }
+}